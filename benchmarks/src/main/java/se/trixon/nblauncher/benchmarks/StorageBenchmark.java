@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import se.trixon.almond.util.gson_adapter.FileAdapter;
+import se.trixon.nblauncher.core.StorageManager.Storage;
+
+/**
+ * Reading and writing of tasks.json.
+ * <p>
+ * The reflective variants use a plain Gson instance, as the storage did before
+ * the streaming adapters, and serve as a reference.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class StorageBenchmark {
+
+    private static final Gson REFLECTIVE_GSON = new GsonBuilder()
+            .setVersion(1.0)
+            .serializeNulls()
+            .setPrettyPrinting()
+            .registerTypeAdapter(File.class, new FileAdapter())
+            .create();
+    private File mDirectory;
+    private File mOutputFile;
+    private Storage mStorage;
+    @Param({"1000", "10000", "100000"})
+    private int mTaskCount;
+    private File mTasksFile;
+
+    @Benchmark
+    public Storage open() throws IOException {
+        return Storage.open(mTasksFile);
+    }
+
+    @Benchmark
+    public Storage openReflective() throws IOException {
+        try (var reader = Files.newBufferedReader(mTasksFile.toPath(), Charset.defaultCharset())) {
+            return REFLECTIVE_GSON.fromJson(reader, Storage.class);
+        }
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        mStorage.save(mOutputFile);
+    }
+
+    @Benchmark
+    public void saveCompact() throws IOException {
+        mStorage.save(mOutputFile, true);
+    }
+
+    @Benchmark
+    public void saveReflective() throws IOException {
+        try (var writer = Files.newBufferedWriter(mOutputFile.toPath(), Charset.defaultCharset())) {
+            REFLECTIVE_GSON.toJson(mStorage, writer);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        mDirectory = Files.createTempDirectory("nblauncher-benchmark").toFile();
+        mTasksFile = new File(mDirectory, "tasks.json");
+        mOutputFile = new File(mDirectory, "tasks.out.json");
+
+        mStorage = new Storage();
+        for (var task : TaskFactory.create(mTaskCount)) {
+            mStorage.getTasks().put(task.getId(), task);
+        }
+        mStorage.save(mTasksFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(mDirectory);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.trixon.nblauncher.core.Task;
+
+/**
+ * Building of the launch command, as done on every start and list repaint.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class TaskCommandBenchmark {
+
+    private String mArg;
+    @Param({"10", "1000"})
+    private int mLines;
+    private Task mTask;
+
+    @Benchmark
+    public List<String> getCommand() {
+        return mTask.getCommand();
+    }
+
+    @Benchmark
+    public String getCommandAsString() {
+        return mTask.getCommandAsString();
+    }
+
+    /**
+     * Edits the task before each call, which drops the cached command.
+     */
+    @Benchmark
+    public String getCommandAsStringInvalidated() {
+        mTask.setArg(mArg);
+        return mTask.getCommandAsString();
+    }
+
+    /**
+     * Pays for the invalidation and the rebuild on every call.
+     */
+    @Benchmark
+    public List<String> getCommandInvalidated() {
+        mTask.setArg(mArg);
+        return mTask.getCommand();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        mTask = TaskFactory.create(new Random(1), 0, mLines, mLines);
+        mArg = mTask.getArg();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+import se.trixon.nblauncher.core.Task;
+
+/**
+ * Creates reproducible tasks for the benchmarks.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+class TaskFactory {
+
+    private static final long SEED = 20240101L;
+
+    static Task create(Random random, int index, int argLines, int envLines) {
+        var task = new Task();
+        task.setId(new UUID(random.nextLong(), random.nextLong()).toString());
+        task.setName("Task %06d %08x".formatted(index, random.nextInt()));
+        task.setExecPath(new File("/opt/netbeans-%d/bin/netbeans".formatted(index % 16)));
+        task.setFontSize(index % 3 == 0 ? "14" : "");
+        task.setLocale(index % 4 == 0 ? Locale.forLanguageTag("sv-SE") : Locale.ROOT);
+        task.setUserDir(new File("/home/user/.netbeans/%d/user".formatted(index)));
+        task.setUserDirActivated(true);
+        task.setCacheDir(new File("/home/user/.cache/netbeans/%d".formatted(index)));
+        task.setCacheDirActivated(index % 2 == 0);
+        task.setJavaDir(new File("/usr/lib/jvm/java-21"));
+        task.setJavaDirActivated(index % 5 == 0);
+        task.setConsoleLogger(index % 2 == 1);
+        task.setLastRun(1_700_000_000_000L + random.nextInt(1_000_000_000));
+        task.setArg(createBlock(random, argLines, "--option-%d value-%08x"));
+        task.setEnv(createBlock(random, envLines, "key.%d=value-%08x"));
+
+        return task;
+    }
+
+    static ArrayList<Task> create(int count) {
+        var random = new Random(SEED);
+        var tasks = new ArrayList<Task>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(create(random, i, 3, 2));
+        }
+
+        return tasks;
+    }
+
+    private static String createBlock(Random random, int lines, String format) {
+        var sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            if (i % 10 == 9) {
+                sb.append("#").append(format.formatted(i, random.nextInt())).append("\n");
+            } else {
+                sb.append(format.formatted(i, random.nextInt())).append("\n");
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private TaskFactory() {
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.trixon.nblauncher.core.Task;
+import se.trixon.nblauncher.core.TaskManager;
+
+/**
+ * Name lookups, as done by the task editor while typing.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class TaskLookupBenchmark {
+
+    private String mExistingName;
+    private String mMissingName;
+    @Param({"1000", "10000", "100000"})
+    private int mTaskCount;
+    private final TaskManager mTaskManager = TaskManager.getInstance();
+
+    @Benchmark
+    public Task getByNameHit() {
+        return mTaskManager.getByName(mExistingName);
+    }
+
+    @Benchmark
+    public Task getByNameMiss() {
+        return mTaskManager.getByName(mMissingName);
+    }
+
+    @Benchmark
+    public boolean isValidNew() {
+        return mTaskManager.isValid(mExistingName, mMissingName);
+    }
+
+    @Benchmark
+    public boolean isValidSame() {
+        return mTaskManager.isValid(mExistingName, mExistingName.toUpperCase());
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var tasks = TaskFactory.create(mTaskCount);
+        mTaskManager.clear();
+        mTaskManager.update(tasks, List.of());
+        mExistingName = tasks.get(mTaskCount / 2).getName();
+        mMissingName = mExistingName + " (copy)";
+    }
+}
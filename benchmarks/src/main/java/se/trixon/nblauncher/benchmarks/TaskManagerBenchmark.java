@@ -0,0 +1,156 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.trixon.nblauncher.core.Task;
+import se.trixon.nblauncher.core.TaskManager;
+
+/**
+ * Maintenance of the task map and the sorted item list.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class TaskManagerBenchmark {
+
+    private Task mExtraTask;
+    private int mIndex;
+    private ArrayList<Task> mLoadOrder;
+    @Param({"1000", "10000", "50000", "100000"})
+    private int mTaskCount;
+    private final TaskManager mTaskManager = TaskManager.getInstance();
+    private ArrayList<Task> mTasks;
+
+    /**
+     * Replaces all tasks in one batch, as a load does.
+     *
+     * @return
+     */
+    @Benchmark
+    public int load() {
+        mTaskManager.clear();
+        mTaskManager.update(mLoadOrder, List.of());
+
+        return mTaskManager.getItems().size();
+    }
+
+    /**
+     * Adds all tasks in doubling batches of 64 to 4096, as a background load
+     * publishes them.
+     *
+     * @return
+     */
+    @Benchmark
+    public int loadBatched() {
+        mTaskManager.clear();
+        for (int from = 0, size = 64; from < mLoadOrder.size(); from += size, size = Math.min(size * 2, 4096)) {
+            mTaskManager.update(mLoadOrder.subList(from, Math.min(from + size, mLoadOrder.size())), List.of());
+        }
+
+        return mTaskManager.getItems().size();
+    }
+
+    /**
+     * Adds all tasks one at a time.
+     *
+     * @return
+     */
+    @Benchmark
+    public int loadIncremental() {
+        mTaskManager.clear();
+        for (var task : mLoadOrder) {
+            mTaskManager.update(List.of(task), List.of());
+        }
+
+        return mTaskManager.getItems().size();
+    }
+
+    /**
+     * Adds a single task to, and removes it from, the full list.
+     *
+     * @return
+     */
+    @Benchmark
+    public int putRemove() {
+        mTaskManager.getIdToItem().put(mExtraTask.getId(), mExtraTask);
+        int size = mTaskManager.getItems().size();
+        mTaskManager.getIdToItem().remove(mExtraTask.getId());
+
+        return size;
+    }
+
+    /**
+     * Moves a single task within the full list.
+     *
+     * @return
+     */
+    @Benchmark
+    public Task refresh() {
+        var task = mTasks.get(mIndex++ % mTasks.size());
+        task.setLastRun(task.getLastRun() + 1);
+        task.setName(task.getName().endsWith("~") ? task.getName().substring(0, task.getName().length() - 1) : task.getName() + "~");
+        mTaskManager.refresh(task);
+
+        return task;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        mTasks = TaskFactory.create(mTaskCount);
+        //nvm - stored order, unrelated to the name order the factory creates
+        mLoadOrder = new ArrayList<>(mTasks);
+        Collections.shuffle(mLoadOrder, new Random(1));
+        mExtraTask = TaskFactory.create(1).getFirst();
+        mExtraTask.setId("extra");
+        mTaskManager.setSortOrder(TaskManager.SortOrder.NAME);
+        mTaskManager.clear();
+        mTaskManager.update(mTasks, List.of());
+    }
+
+    /**
+     * Resorts the full list, as a change of sort order does.
+     *
+     * @return
+     */
+    @Benchmark
+    public int sort() {
+        mTaskManager.setSortOrder(mIndex++ % 2 == 0 ? TaskManager.SortOrder.LAST_RUN : TaskManager.SortOrder.NAME);
+
+        return mTaskManager.getItems().size();
+    }
+}
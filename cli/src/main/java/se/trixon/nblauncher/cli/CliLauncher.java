@@ -0,0 +1,173 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.commons.lang3.SystemUtils;
+import se.trixon.nblauncher.core.StorageManager;
+import se.trixon.nblauncher.core.Task;
+import se.trixon.nblauncher.core.TaskJournal;
+
+/**
+ * Lists and runs the stored tasks without starting the platform or JavaFX.
+ * <p>
+ * Reads tasks.json and the journal of the user directory directly and runs
+ * the launch command with the console as its input and output, e.g.
+ * <code>java -jar cli/target/nblauncher-cli.jar run "My App"</code>
+ * <p>
+ * Exits with the exit code of the task, or 2 on usage errors.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class CliLauncher {
+
+    private static final int EXIT_START_FAILED = 127;
+    private static final int EXIT_USAGE = 2;
+    private static final String USAGE = """
+            Usage: nblauncher-cli [--userdir <dir>] <command>
+
+              list                  list the tasks
+              command <name or id>  print the launch command of a task
+              run <name or id>      run a task and exit with its exit code
+
+            The user directory defaults to $NBLAUNCHER_USERDIR or the default
+            user directory of nbLauncher.""";
+    private final File mUserDirectory;
+
+    public static void main(String[] args) {
+        var userDirectory = getDefaultUserDirectory();
+        var arguments = new ArrayList<>(List.of(args));
+        if (arguments.size() >= 2 && arguments.getFirst().equals("--userdir")) {
+            userDirectory = new File(arguments.get(1));
+            arguments.subList(0, 2).clear();
+        }
+
+        int exitCode;
+        try {
+            exitCode = new CliLauncher(userDirectory).execute(arguments);
+        } catch (IOException | RuntimeException ex) {
+            System.err.println(ex.getMessage());
+            exitCode = EXIT_USAGE;
+        }
+
+        System.exit(exitCode);
+    }
+
+    private static File getDefaultUserDirectory() {
+        var userDirectory = System.getenv("NBLAUNCHER_USERDIR");
+        if (userDirectory != null && !userDirectory.isBlank()) {
+            return new File(userDirectory);
+        } else if (SystemUtils.IS_OS_WINDOWS) {
+            return new File(System.getenv("APPDATA"), "nblauncher");
+        } else if (SystemUtils.IS_OS_MAC) {
+            return new File(SystemUtils.getUserHome(), "Library/Application Support/nblauncher");
+        } else {
+            return new File(SystemUtils.getUserHome(), ".nblauncher");
+        }
+    }
+
+    public CliLauncher(File userDirectory) {
+        mUserDirectory = userDirectory;
+    }
+
+    public int execute(List<String> arguments) throws IOException {
+        if (arguments.size() == 1 && arguments.getFirst().equals("list")) {
+            for (var task : loadTasks()) {
+                System.out.println("%s  %s".formatted(task.getId(), task.getName()));
+            }
+
+            return 0;
+        } else if (arguments.size() == 2 && arguments.getFirst().equals("command")) {
+            System.out.println(getTask(arguments.get(1)).getCommandAsString());
+
+            return 0;
+        } else if (arguments.size() == 2 && arguments.getFirst().equals("run")) {
+            return run(getTask(arguments.get(1)));
+        } else {
+            System.err.println(USAGE);
+
+            return EXIT_USAGE;
+        }
+    }
+
+    /**
+     * Returns the task with the given id, or the only task with the given
+     * name, ignoring case.
+     */
+    private Task getTask(String nameOrId) throws IOException {
+        var tasks = loadTasks();
+        for (var task : tasks) {
+            if (task.getId().equals(nameOrId)) {
+                return task;
+            }
+        }
+
+        var matches = tasks.stream()
+                .filter(task -> nameOrId.equalsIgnoreCase(task.getName()))
+                .toList();
+        if (matches.isEmpty()) {
+            throw new IllegalArgumentException("No task named " + nameOrId);
+        } else if (matches.size() > 1) {
+            throw new IllegalArgumentException("%d tasks are named %s, use one of the ids:\n%s".formatted(
+                    matches.size(),
+                    nameOrId,
+                    String.join("\n", matches.stream().map(Task::getId).toList())
+            ));
+        }
+
+        return matches.getFirst();
+    }
+
+    private List<Task> loadTasks() throws IOException {
+        var tasksFile = new File(mUserDirectory, "tasks.json");
+        var storage = tasksFile.exists() ? StorageManager.Storage.open(tasksFile) : new StorageManager.Storage();
+        new TaskJournal(new File(mUserDirectory, "tasks.journal")).replay(storage.getTasks());
+
+        return storage.getTasks().values().stream()
+                .sorted(Comparator.comparing(Task::getName, String.CASE_INSENSITIVE_ORDER))
+                .toList();
+    }
+
+    private int run(Task task) {
+        Process process;
+        try {
+            process = new ProcessBuilder(task.getCommand()).inheritIO().start();
+        } catch (IOException ex) {
+            System.err.println(ex.getMessage());
+
+            return EXIT_START_FAILED;
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (process.isAlive()) {
+                process.descendants().forEach(ProcessHandle::destroy);
+                process.destroy();
+            }
+        }));
+
+        try {
+            return process.waitFor();
+        } catch (InterruptedException ex) {
+            process.destroy();
+
+            return EXIT_START_FAILED;
+        }
+    }
+}
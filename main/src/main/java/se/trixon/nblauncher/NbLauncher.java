@@ -16,11 +16,14 @@
 package se.trixon.nblauncher;
 
 import java.io.IOException;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import org.openide.util.Exceptions;
 import org.openide.util.NbBundle;
 import org.openide.windows.IOProvider;
 import se.trixon.almond.util.Dict;
 import se.trixon.almond.util.SystemHelper;
+import se.trixon.almond.util.fx.FxHelper;
 import se.trixon.nblauncher.core.TaskManager;
 import se.trixon.nblauncher.ui.MainTopComponent;
 
@@ -30,10 +33,12 @@ import se.trixon.nblauncher.ui.MainTopComponent;
  */
 public class NbLauncher {
 
+    private static volatile String sSystemInformation;
+
     public static void displaySystemInformation() {
         String s = "%s\n%s".formatted(
                 Dict.SYSTEM.toUpper(),
-                SystemHelper.getSystemInfo()
+                getSystemInformation()
         );
 
         var io = IOProvider.getDefault().getIO(Dict.INFORMATION.toString(), false);
@@ -44,12 +49,47 @@ public class NbLauncher {
         }
 
         io.getOut().println(s);
+        io.getOut().close();
+
+        //nvm - the loading flag is cleared on the FX thread, check it there so the change can not be missed
+        FxHelper.runLater(() -> {
+            var taskManager = TaskManager.getInstance();
+            if (taskManager.isLoading()) {
+                taskManager.loadingProperty().addListener(new ChangeListener<Boolean>() {
+                    @Override
+                    public void changed(ObservableValue<? extends Boolean> observable, Boolean oldValue, Boolean newValue) {
+                        if (!newValue) {
+                            observable.removeListener(this);
+                            displayWelcomeIfEmpty();
+                        }
+                    }
+                });
+            } else {
+                displayWelcomeIfEmpty();
+            }
+        });
+    }
+
+    /**
+     * Returns the system information, collected on first use.
+     *
+     * @return
+     */
+    public static String getSystemInformation() {
+        if (sSystemInformation == null) {
+            sSystemInformation = SystemHelper.getSystemInfo();
+        }
+
+        return sSystemInformation;
+    }
+
+    private static void displayWelcomeIfEmpty() {
         if (TaskManager.getInstance().getItems().isEmpty()) {
+            var io = IOProvider.getDefault().getIO(Dict.INFORMATION.toString(), false);
             io.getOut().println();
             io.getOut().println(NbBundle.getMessage(MainTopComponent.class, "welcome"));
+            io.getOut().close();
         }
-
-        io.getOut().close();
     }
 
 }
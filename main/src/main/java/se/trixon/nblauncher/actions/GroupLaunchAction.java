@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.actions;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import org.openide.DialogDescriptor;
+import org.openide.DialogDisplayer;
+import org.openide.awt.ActionID;
+import org.openide.awt.ActionReference;
+import org.openide.awt.ActionRegistration;
+import org.openide.util.NbBundle;
+import se.trixon.almond.nbp.fx.FxDialogPanel;
+import se.trixon.almond.util.fx.FxHelper;
+import se.trixon.almond.util.swing.SwingHelper;
+import se.trixon.nblauncher.ui.GroupLaunchPanel;
+
+@ActionID(
+        category = "File",
+        id = "se.trixon.nblauncher.actions.GroupLaunchAction"
+)
+@ActionRegistration(
+        displayName = "#CTL_GroupLaunchAction"
+)
+@ActionReference(path = "Menu/File", position = 100)
+public final class GroupLaunchAction implements ActionListener {
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        var groupLaunchPanel = new GroupLaunchPanel();
+        groupLaunchPanel.setPadding(FxHelper.getUIScaledInsets(16, 16, 0, 16));
+        var dialogPanel = new FxDialogPanel() {
+            @Override
+            protected void fxConstructor() {
+                setScene(new Scene(groupLaunchPanel));
+            }
+        };
+        dialogPanel.setPreferredSize(SwingHelper.getUIScaledDim(640, 480));
+
+        var d = new DialogDescriptor(dialogPanel, NbBundle.getMessage(GroupLaunchAction.class, "CTL_GroupLaunchAction"));
+        d.setValid(false);
+        dialogPanel.setNotifyDescriptor(d);
+        dialogPanel.initFx(() -> {
+            groupLaunchPanel.load(d);
+        });
+
+        if (DialogDescriptor.OK_OPTION == DialogDisplayer.getDefault().notify(d)) {
+            Platform.runLater(() -> {
+                groupLaunchPanel.save().start();
+            });
+        }
+    }
+}
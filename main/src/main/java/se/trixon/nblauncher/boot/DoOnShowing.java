@@ -17,13 +17,18 @@ package se.trixon.nblauncher.boot;
 
 import java.net.MalformedURLException;
 import java.net.URI;
+import javafx.application.Platform;
 import org.openide.awt.HtmlBrowser;
 import org.openide.util.Exceptions;
 import org.openide.windows.IOContainer;
 import org.openide.windows.OnShowing;
 import org.openide.windows.WindowManager;
 import se.trixon.almond.util.SystemHelper;
+import se.trixon.almond.util.fx.FxHelper;
 import se.trixon.nblauncher.NbLauncher;
+import se.trixon.nblauncher.core.DiskUsageAnalyzer;
+import se.trixon.nblauncher.core.PathValidator;
+import se.trixon.nblauncher.core.StorageManager;
 
 /**
  *
@@ -34,6 +39,7 @@ public class DoOnShowing implements Runnable {
 
     @Override
     public void run() {
+        StartupTimeline.mark("OnShowing");
         SystemHelper.setDesktopBrowser(url -> {
             try {
                 HtmlBrowser.URLDisplayer.getDefault().showURL(URI.create(url).toURL());
@@ -56,7 +62,19 @@ public class DoOnShowing implements Runnable {
         for (var tc : windowManager.getOpenedTopComponents(editorMode)) {
             tc.setIcon(null);
         }
+        StartupTimeline.mark("Window layout");
 
-        NbLauncher.displaySystemInformation();
+        //nvm - load even if the main window is closed, it only binds to the loading property
+        try {
+            Platform.startup(() -> {
+            });
+        } catch (IllegalStateException e) {
+            //nvm - already started by the main window
+        }
+        StorageManager.getInstance().loadAsync();
+
+        StartupTimeline.defer("System information", NbLauncher::displaySystemInformation);
+        StartupTimeline.defer("Disk usage", () -> FxHelper.runLater(DiskUsageAnalyzer.getInstance()::analyzeAll));
+        StartupTimeline.defer("Path validation", () -> FxHelper.runLater(PathValidator.getInstance()::start));
     }
 }
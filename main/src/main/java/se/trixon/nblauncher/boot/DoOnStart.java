@@ -15,13 +15,10 @@
  */
 package se.trixon.nblauncher.boot;
 
-import java.io.IOException;
 import org.openide.modules.OnStart;
-import org.openide.util.Exceptions;
 import org.openide.util.NbPreferences;
 import se.trixon.almond.nbp.NbHelper;
 import se.trixon.almond.nbp.dialogs.NbOptionalDialog;
-import se.trixon.nblauncher.core.StorageManager;
 
 /**
  *
@@ -37,17 +34,15 @@ public class DoOnStart implements Runnable {
         NbHelper.setLafDefault("Light");
         NbHelper.setLafAccentColor("#00ff00");
         NbHelper.initNightModeIfNeeded();
+        StartupTimeline.mark("Look and feel");
 
         NbOptionalDialog.setPreferences(NbPreferences.forModule(NbOptionalDialog.class).node("optionalDialogState"));
     }
 
     @Override
     public void run() {
-        try {
-            StorageManager.getInstance().load();
-        } catch (IOException ex) {
-            Exceptions.printStackTrace(ex);
-        }
+        StartupTimeline.mark("OnStart");
+        //Tasks are loaded in the background once the window system is up, see DoOnShowing
     }
 
 }
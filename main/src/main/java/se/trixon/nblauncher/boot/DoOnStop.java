@@ -0,0 +1,40 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.boot;
+
+import java.util.concurrent.TimeUnit;
+import org.openide.modules.OnStop;
+import org.openide.util.Exceptions;
+import se.trixon.nblauncher.core.StorageManager;
+
+/**
+ *
+ * @author Patrik Karlström
+ */
+@OnStop
+public class DoOnStop implements Runnable {
+
+    @Override
+    public void run() {
+        try {
+            StorageManager.getInstance().flush(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Exceptions.printStackTrace(ex);
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.boot;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Records named startup phases, in milliseconds since JVM start, and logs
+ * them once the first interaction is possible.
+ * <p>
+ * Steps that are not needed for the first interaction can be deferred until
+ * then.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class StartupTimeline {
+
+    private static final int DEFERRED_TIMEOUT = 10_000;
+    private static final Logger LOGGER = Logger.getLogger(StartupTimeline.class.getName());
+    private static final RequestProcessor REQUEST_PROCESSOR = new RequestProcessor(StartupTimeline.class.getSimpleName(), 1);
+    private static final LinkedHashMap<String, Runnable> sDeferred = new LinkedHashMap<>();
+    private static boolean sDeferredStarted;
+    private static boolean sFinished;
+    private static final ArrayList<String> sPhaseNames = new ArrayList<>();
+    private static final ArrayList<Long> sPhaseTimes = new ArrayList<>();
+
+    static {
+        REQUEST_PROCESSOR.post(StartupTimeline::runDeferred, DEFERRED_TIMEOUT);
+    }
+
+    /**
+     * Runs the step in the background after the first interaction has been
+     * reached, or the timeout has elapsed, or right away if either already
+     * has.
+     *
+     * @param name
+     * @param runnable
+     */
+    public static void defer(String name, Runnable runnable) {
+        synchronized (sDeferred) {
+            if (!sDeferredStarted) {
+                sDeferred.put(name, runnable);
+                return;
+            }
+        }
+
+        REQUEST_PROCESSOR.post(() -> runTimed(name, runnable));
+    }
+
+    /**
+     * Records the final phase, logs the timeline and starts the deferred
+     * steps, unless the timeout already has. Subsequent calls are ignored.
+     *
+     * @param phase
+     */
+    public static void finish(String phase) {
+        synchronized (sDeferred) {
+            if (sFinished) {
+                return;
+            }
+            mark(phase);
+            sFinished = true;
+        }
+
+        log();
+        REQUEST_PROCESSOR.post(StartupTimeline::runDeferred);
+    }
+
+    public static boolean isFinished() {
+        synchronized (sDeferred) {
+            return sFinished;
+        }
+    }
+
+    public static void mark(String phase) {
+        var uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        synchronized (sPhaseNames) {
+            sPhaseNames.add(phase);
+            sPhaseTimes.add(uptime);
+        }
+    }
+
+    private static void log() {
+        var sb = new StringBuilder("Startup timeline");
+        synchronized (sPhaseNames) {
+            long previous = 0;
+            for (int i = 0; i < sPhaseNames.size(); i++) {
+                long time = sPhaseTimes.get(i);
+                sb.append("\n%8d ms %8s  %s".formatted(time, "(+%d)".formatted(time - previous), sPhaseNames.get(i)));
+                previous = time;
+            }
+        }
+
+        LOGGER.log(Level.INFO, sb.toString());
+    }
+
+    private static void runDeferred() {
+        LinkedHashMap<String, Runnable> deferred;
+        synchronized (sDeferred) {
+            sDeferredStarted = true;
+            deferred = new LinkedHashMap<>(sDeferred);
+            sDeferred.clear();
+        }
+
+        deferred.forEach(StartupTimeline::runTimed);
+    }
+
+    private static void runTimed(String name, Runnable runnable) {
+        long start = System.currentTimeMillis();
+        try {
+            runnable.run();
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, name, ex);
+        }
+        LOGGER.log(Level.FINE, "Deferred startup step {0}: {1} ms", new Object[]{name, System.currentTimeMillis() - start});
+    }
+
+    private StartupTimeline() {
+    }
+}
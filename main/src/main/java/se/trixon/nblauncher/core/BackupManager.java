@@ -0,0 +1,336 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps a bounded ring of gzip compressed task backups.
+ * <p>
+ * The oldest backup point is always a full one, every later point holds the
+ * changes against its predecessor, using the same line format as
+ * {@link TaskJournal}. When the oldest point is pruned, its successor is
+ * rewritten as a full point.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class BackupManager {
+
+    private static final String EXT_DELTA = ".delta.gz";
+    private static final String EXT_FULL = ".full.gz";
+    private static final String TAG_PATTERN = "yyyyMMdd_HHmmss_SSS";
+    private final File mDirectory;
+    private Map<String, String> mLastState;
+    private long mMaxAge = TimeUnit.DAYS.toMillis(90);
+    private int mMaxCount = 50;
+    private long mMaxSize = 16 * 1024 * 1024;
+
+    public BackupManager(File directory) {
+        mDirectory = directory;
+    }
+
+    /**
+     * Adds a backup point, unless nothing has changed since the previous one,
+     * and applies the retention policy.
+     *
+     * @param tasks
+     * @throws IOException
+     */
+    public synchronized void backup(Map<String, Task> tasks) throws IOException {
+        var state = new HashMap<String, String>();
+        for (var entry : tasks.entrySet()) {
+            state.put(entry.getKey(), TaskJournal.toJson(entry.getValue()));
+        }
+
+        var points = list();
+        if (mLastState == null && !points.isEmpty()) {
+            mLastState = materializeState(points, points.size() - 1);
+        }
+
+        if (mLastState == null) {
+            write(createFile(EXT_FULL), state, List.of());
+        } else {
+            var puts = new HashMap<String, String>();
+            for (var entry : state.entrySet()) {
+                if (!entry.getValue().equals(mLastState.get(entry.getKey()))) {
+                    puts.put(entry.getKey(), entry.getValue());
+                }
+            }
+            var removes = new ArrayList<String>();
+            for (var id : mLastState.keySet()) {
+                if (!state.containsKey(id)) {
+                    removes.add(id);
+                }
+            }
+
+            if (puts.isEmpty() && removes.isEmpty()) {
+                return;
+            }
+
+            write(createFile(EXT_DELTA), puts, removes);
+        }
+
+        mLastState = state;
+        prune();
+    }
+
+    public File getDirectory() {
+        return mDirectory;
+    }
+
+    public long getMaxAge() {
+        return mMaxAge;
+    }
+
+    public int getMaxCount() {
+        return mMaxCount;
+    }
+
+    public long getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Returns the available backup points, oldest first.
+     *
+     * @return
+     */
+    public synchronized List<Point> list() {
+        var files = mDirectory.listFiles((dir, name) -> name.endsWith(EXT_FULL) || name.endsWith(EXT_DELTA));
+        var points = new ArrayList<Point>();
+        if (files == null) {
+            return points;
+        }
+
+        Arrays.sort(files);
+        for (var file : files) {
+            var full = file.getName().endsWith(EXT_FULL);
+            var name = file.getName();
+            var tag = name.substring(0, name.length() - (full ? EXT_FULL : EXT_DELTA).length());
+            try {
+                var date = new SimpleDateFormat(TAG_PATTERN).parse(tag);
+                points.add(new Point(file, date.getTime(), full));
+            } catch (ParseException ex) {
+                //nvm - not ours
+            }
+        }
+
+        while (!points.isEmpty() && !points.getFirst().isFull()) {
+            points.removeFirst();
+        }
+
+        return points;
+    }
+
+    /**
+     * Rebuilds the tasks as they were at the given backup point.
+     *
+     * @param point
+     * @return
+     * @throws IOException
+     */
+    public synchronized HashMap<String, Task> materialize(Point point) throws IOException {
+        var points = list();
+        int index = points.indexOf(point);
+        if (index < 0) {
+            throw new IOException("Backup point not found: " + point.getFile());
+        }
+
+        var tasks = new HashMap<String, Task>();
+        for (var entry : materializeState(points, index).entrySet()) {
+            tasks.put(entry.getKey(), TaskJournal.fromJson(entry.getValue()));
+        }
+
+        return tasks;
+    }
+
+    public void setMaxAge(long maxAge) {
+        mMaxAge = maxAge;
+    }
+
+    public void setMaxCount(int maxCount) {
+        mMaxCount = maxCount;
+    }
+
+    public void setMaxSize(long maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    private File createFile(String extension) {
+        mDirectory.mkdirs();
+        var time = System.currentTimeMillis();
+        String tag;
+        do {
+            tag = new SimpleDateFormat(TAG_PATTERN).format(new Date(time++));
+        } while (new File(mDirectory, tag + EXT_FULL).exists() || new File(mDirectory, tag + EXT_DELTA).exists());
+
+        return new File(mDirectory, tag + extension);
+    }
+
+    private Map<String, String> materializeState(List<Point> points, int index) throws IOException {
+        int base = index;
+        while (!points.get(base).isFull()) {
+            base--;
+        }
+
+        var state = new HashMap<String, String>();
+        for (int i = base; i <= index; i++) {
+            read(points.get(i).getFile(), state);
+        }
+
+        return state;
+    }
+
+    private void prune() throws IOException {
+        var points = list();
+        long totalSize = points.stream().mapToLong(Point::getSize).sum();
+        long minDate = System.currentTimeMillis() - mMaxAge;
+
+        while (points.size() > 1
+                && (points.size() > mMaxCount || points.getFirst().getDate() < minDate || totalSize > mMaxSize)) {
+            var oldest = points.removeFirst();
+            totalSize -= oldest.getSize();
+
+            var next = points.getFirst();
+            if (!next.isFull()) {
+                var state = new HashMap<String, String>();
+                read(oldest.getFile(), state);
+                read(next.getFile(), state);
+
+                var name = next.getFile().getName();
+                var rebased = new File(mDirectory, name.substring(0, name.length() - EXT_DELTA.length()) + EXT_FULL);
+                var tmpFile = new File(mDirectory, rebased.getName() + ".tmp");
+                write(tmpFile, state, List.of());
+                Files.move(tmpFile.toPath(), rebased.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.delete(next.getFile().toPath());
+
+                totalSize -= next.getSize();
+                next = new Point(rebased, next.getDate(), true);
+                totalSize += next.getSize();
+                points.set(0, next);
+            }
+
+            Files.deleteIfExists(oldest.getFile().toPath());
+        }
+    }
+
+    private void read(File file, Map<String, String> state) throws IOException {
+        try (var reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                JsonObject entry;
+                try {
+                    entry = JsonParser.parseString(line).getAsJsonObject();
+                } catch (JsonParseException | IllegalStateException e) {
+                    continue;
+                }
+
+                var id = entry.get("id").getAsString();
+                switch (entry.get("op").getAsString()) {
+                    case "put" ->
+                        state.put(id, entry.get("task").toString());
+                    case "remove" ->
+                        state.remove(id);
+                    default -> {
+                    }
+                }
+            }
+        }
+    }
+
+    private void write(File file, Map<String, String> puts, Iterable<String> removes) throws IOException {
+        try (var writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8))) {
+            for (var entry : puts.entrySet()) {
+                TaskJournal.writeEntry(writer, entry.getKey(), entry.getValue());
+            }
+            for (var id : removes) {
+                TaskJournal.writeEntry(writer, id, null);
+            }
+        }
+    }
+
+    public static class Point {
+
+        private final long mDate;
+        private final File mFile;
+        private final boolean mFull;
+
+        public Point(File file, long date, boolean full) {
+            mFile = file;
+            mDate = date;
+            mFull = full;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Point point && mFile.equals(point.mFile);
+        }
+
+        public long getDate() {
+            return mDate;
+        }
+
+        public File getFile() {
+            return mFile;
+        }
+
+        public long getSize() {
+            return mFile.length();
+        }
+
+        @Override
+        public int hashCode() {
+            return mFile.hashCode();
+        }
+
+        public boolean isFull() {
+            return mFull;
+        }
+
+        @Override
+        public String toString() {
+            return "%s %s".formatted(new SimpleDateFormat("yyyy-MM-dd HH.mm.ss").format(new Date(mDate)), mFull ? "full" : "delta");
+        }
+    }
+}
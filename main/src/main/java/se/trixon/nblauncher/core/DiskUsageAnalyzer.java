@@ -0,0 +1,388 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.prefs.Preferences;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import org.openide.util.Exceptions;
+import org.openide.util.NbPreferences;
+import se.trixon.almond.util.fx.FxHelper;
+
+/**
+ * Measures the user and cache directories of tasks, and purges their caches.
+ * <p>
+ * Directories are walked in parallel on a fork/join pool. The size of the
+ * files directly in a directory is cached together with the modification
+ * time of the directory, and reused as long as it is unchanged, so that
+ * a repeated walk only lists directories where files have been added,
+ * removed or renamed. Files that change size in place are not seen until
+ * their directory changes.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class DiskUsageAnalyzer {
+
+    /**
+     * Directories, relative to the user directory, that may be purged. The
+     * cache directory may be purged as a whole.
+     */
+    public static final List<String> PURGEABLE_USER_DIRS = List.of("var/cache", "var/log");
+    private static final String KEY_BEFORE_LAUNCH = "purgeBeforeLaunch";
+    private static final String KEY_MAX_AGE = "purgeMaxAge";
+    private static final String KEY_MAX_SIZE = "purgeMaxSize";
+    private final ConcurrentHashMap<Path, Node> mNodes = new ConcurrentHashMap<>();
+    private final ForkJoinPool mPool = new ForkJoinPool(Math.clamp(Runtime.getRuntime().availableProcessors(), 2, 8));
+    private final Preferences mPreferences = NbPreferences.forModule(DiskUsageAnalyzer.class).node("diskUsage");
+    private final AtomicBoolean mPublishScheduled = new AtomicBoolean(false);
+    private final ReadOnlyObjectWrapper<Map<String, TaskUsage>> mUsageProperty = new ReadOnlyObjectWrapper<>(Map.of());
+    private final ConcurrentHashMap<String, TaskUsage> mUsages = new ConcurrentHashMap<>();
+
+    public static DiskUsageAnalyzer getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private DiskUsageAnalyzer() {
+    }
+
+    /**
+     * Measures the directories of the task in the background.
+     *
+     * @param task
+     * @return
+     */
+    public CompletableFuture<TaskUsage> analyze(Task task) {
+        var userDir = task.isUserDirActivated() ? task.getUserDir() : null;
+        var cacheDir = task.isCacheDirActivated() ? task.getCacheDir() : null;
+
+        return CompletableFuture.supplyAsync(() -> {
+            var userDirUsage = measure(userDir);
+            var cacheDirUsage = measure(cacheDir);
+            var purgeable = cacheDirUsage;
+            if (userDir != null) {
+                for (var dir : PURGEABLE_USER_DIRS) {
+                    purgeable = purgeable.plus(measure(new File(userDir, dir)));
+                }
+            }
+
+            var taskUsage = new TaskUsage(userDirUsage, cacheDirUsage, purgeable);
+            mUsages.put(task.getId(), taskUsage);
+            publish();
+
+            return taskUsage;
+        }, mPool).whenComplete((taskUsage, throwable) -> {
+            if (throwable != null) {
+                Exceptions.printStackTrace(throwable);
+            }
+        });
+    }
+
+    /**
+     * Measures the directories of all tasks in the background, once they
+     * have been loaded. Has to be called on the FX thread.
+     */
+    public void analyzeAll() {
+        var taskManager = TaskManager.getInstance();
+        if (taskManager.isLoading()) {
+            taskManager.loadingProperty().addListener(new ChangeListener<Boolean>() {
+                @Override
+                public void changed(ObservableValue<? extends Boolean> observable, Boolean oldValue, Boolean newValue) {
+                    if (!newValue) {
+                        observable.removeListener(this);
+                        analyzeAll();
+                    }
+                }
+            });
+        } else {
+            analyzeAll(List.copyOf(taskManager.getItems()));
+        }
+    }
+
+    public void analyzeAll(Collection<Task> tasks) {
+        for (var task : tasks) {
+            analyze(task);
+        }
+    }
+
+    public PurgePolicy getPurgePolicy() {
+        return new PurgePolicy(
+                mPreferences.getInt(KEY_MAX_AGE, 0),
+                mPreferences.getLong(KEY_MAX_SIZE, 0),
+                mPreferences.getBoolean(KEY_BEFORE_LAUNCH, false)
+        );
+    }
+
+    /**
+     * Returns the latest measurement of the task, or null if there is none.
+     *
+     * @param taskId
+     * @return
+     */
+    public TaskUsage getUsage(String taskId) {
+        return mUsages.get(taskId);
+    }
+
+    /**
+     * Deletes purgeable files older than the maximum age, and then the
+     * oldest ones until the purgeable size is within the maximum size. Does
+     * nothing while the task is running.
+     *
+     * @param task
+     * @param purgePolicy
+     * @return the number of files and bytes deleted
+     * @throws IOException
+     */
+    public Usage purge(Task task, PurgePolicy purgePolicy) throws IOException {
+        if (ExecutorManager.getInstance().isActive(task.getId())) {
+            return new Usage(0, 0);
+        }
+
+        return purgeFiles(task, purgePolicy);
+    }
+
+    public void setPurgePolicy(PurgePolicy purgePolicy) {
+        mPreferences.putInt(KEY_MAX_AGE, purgePolicy.maxAge());
+        mPreferences.putLong(KEY_MAX_SIZE, purgePolicy.maxSize());
+        mPreferences.putBoolean(KEY_BEFORE_LAUNCH, purgePolicy.beforeLaunch());
+    }
+
+    /**
+     * Holds the measurements by task id, updated on the FX thread.
+     *
+     * @return
+     */
+    public ReadOnlyObjectProperty<Map<String, TaskUsage>> usageProperty() {
+        return mUsageProperty.getReadOnlyProperty();
+    }
+
+    /**
+     * Purges without checking if the task is running, for the executor that
+     * is about to launch it.
+     */
+    Usage purgeFiles(Task task, PurgePolicy purgePolicy) throws IOException {
+        var roots = new ArrayList<Path>();
+        if (task.isCacheDirActivated() && task.getCacheDir() != null) {
+            roots.add(task.getCacheDir().toPath());
+        }
+        if (task.isUserDirActivated() && task.getUserDir() != null) {
+            for (var dir : PURGEABLE_USER_DIRS) {
+                roots.add(task.getUserDir().toPath().resolve(dir));
+            }
+        }
+
+        var files = new ArrayList<PurgeFile>();
+        for (var root : roots) {
+            if (Files.isDirectory(root)) {
+                try (var stream = Files.walk(root)) {
+                    stream.forEach(path -> {
+                        try {
+                            var attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                            if (!attributes.isDirectory()) {
+                                files.add(new PurgeFile(path, attributes.lastModifiedTime().toMillis(), attributes.size()));
+                            }
+                        } catch (IOException ex) {
+                            //nvm - gone
+                        }
+                    });
+                } catch (UncheckedIOException ex) {
+                    //nvm - unreadable or gone while walking, purge what was found
+                }
+            }
+        }
+        files.sort(Comparator.comparingLong(PurgeFile::lastModified));
+
+        long total = files.stream().mapToLong(PurgeFile::size).sum();
+        long maxAgeTime = purgePolicy.maxAge() > 0 ? System.currentTimeMillis() - TimeUnit.DAYS.toMillis(purgePolicy.maxAge()) : Long.MIN_VALUE;
+        long maxSize = purgePolicy.maxSize() > 0 ? purgePolicy.maxSize() : Long.MAX_VALUE;
+        long deletedBytes = 0;
+        long deletedFiles = 0;
+        for (var file : files) {
+            if (file.lastModified() >= maxAgeTime && total <= maxSize) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(file.path());
+                total -= file.size();
+                deletedBytes += file.size();
+                deletedFiles++;
+            } catch (IOException ex) {
+                //nvm - in use, keep it
+            }
+        }
+
+        if (deletedFiles > 0) {
+            analyze(task);
+        }
+
+        return new Usage(deletedBytes, deletedFiles);
+    }
+
+    private Usage measure(File directory) {
+        if (directory == null || !directory.isDirectory()) {
+            return new Usage(0, 0);
+        }
+
+        return mPool.invoke(new WalkTask(directory.toPath().toAbsolutePath().normalize()));
+    }
+
+    private void publish() {
+        if (TaskManager.getInstance().isGui() && mPublishScheduled.compareAndSet(false, true)) {
+            FxHelper.runLater(() -> {
+                mPublishScheduled.set(false);
+                mUsageProperty.set(Map.copyOf(mUsages));
+            });
+        }
+    }
+
+    /**
+     * @param maxAge in days, or 0 for no limit
+     * @param maxSize of the purgeable files, in bytes, or 0 for no limit
+     * @param beforeLaunch if true, the policy is applied before each launch
+     */
+    public record PurgePolicy(int maxAge, long maxSize, boolean beforeLaunch) {
+
+        public boolean isActive() {
+            return maxAge > 0 || maxSize > 0;
+        }
+    }
+
+    /**
+     * @param userDir
+     * @param cacheDir
+     * @param purgeable the cache directory and the purgeable parts of the
+     * user directory
+     */
+    public record TaskUsage(Usage userDir, Usage cacheDir, Usage purgeable) {
+
+    }
+
+    public record Usage(long bytes, long files) {
+
+        public Usage plus(Usage usage) {
+            return new Usage(bytes + usage.bytes, files + usage.files);
+        }
+    }
+
+    private record Node(long lastModified, long bytes, long files, String[] directories) {
+
+    }
+
+    private record PurgeFile(Path path, long lastModified, long size) {
+
+    }
+
+    private static class Holder {
+
+        private static final DiskUsageAnalyzer INSTANCE = new DiskUsageAnalyzer();
+    }
+
+    private class WalkTask extends RecursiveTask<Usage> {
+
+        private final Path mDirectory;
+
+        WalkTask(Path directory) {
+            mDirectory = directory;
+        }
+
+        @Override
+        protected Usage compute() {
+            Node node;
+            try {
+                node = getNode();
+            } catch (IOException ex) {
+                mNodes.remove(mDirectory);
+                return new Usage(0, 0);
+            }
+
+            var subTasks = new ArrayList<WalkTask>(node.directories().length);
+            for (var directory : node.directories()) {
+                var subTask = new WalkTask(mDirectory.resolve(directory));
+                subTask.fork();
+                subTasks.add(subTask);
+            }
+
+            var usage = new Usage(node.bytes(), node.files());
+            for (var subTask : subTasks) {
+                usage = usage.plus(subTask.join());
+            }
+
+            return usage;
+        }
+
+        private Node getNode() throws IOException {
+            long lastModified = Files.getLastModifiedTime(mDirectory, LinkOption.NOFOLLOW_LINKS).toMillis();
+            var node = mNodes.get(mDirectory);
+            if (node != null && node.lastModified() == lastModified) {
+                return node;
+            }
+
+            long bytes = 0;
+            long files = 0;
+            var directories = new ArrayList<String>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(mDirectory)) {
+                for (var path : stream) {
+                    try {
+                        var attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        if (attributes.isDirectory()) {
+                            directories.add(path.getFileName().toString());
+                        } else {
+                            bytes += attributes.size();
+                            files++;
+                        }
+                    } catch (NoSuchFileException ex) {
+                        //nvm - removed while walking
+                    }
+                }
+            }
+
+            if (node != null) {
+                for (var directory : node.directories()) {
+                    if (!directories.contains(directory)) {
+                        var removed = mDirectory.resolve(directory);
+                        mNodes.keySet().removeIf(path -> path.startsWith(removed));
+                    }
+                }
+            }
+
+            node = new Node(lastModified, bytes, files, directories.toArray(String[]::new));
+            mNodes.put(mDirectory, node);
+
+            return node;
+        }
+    }
+}
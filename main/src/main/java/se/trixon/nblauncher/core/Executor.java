@@ -15,15 +15,24 @@
  */
 package se.trixon.nblauncher.core;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import org.apache.commons.io.FileUtils;
 import org.netbeans.api.extexecution.ExecutionDescriptor;
 import org.netbeans.api.extexecution.ExecutionService;
+import org.netbeans.api.extexecution.base.input.InputProcessor;
+import org.netbeans.api.extexecution.base.input.InputProcessors;
+import org.netbeans.api.extexecution.base.input.LineProcessor;
 import org.netbeans.api.progress.ProgressHandle;
 import org.openide.awt.StatusDisplayer;
-import org.openide.util.Cancellable;
 import org.openide.util.Exceptions;
+import org.openide.util.NbBundle;
 import org.openide.windows.FoldHandle;
 import org.openide.windows.IOFolding;
 import org.openide.windows.IOProvider;
@@ -33,68 +42,242 @@ import se.trixon.almond.nbp.output.OutputLineMode;
 import se.trixon.almond.util.Dict;
 
 /**
+ * Runs a task and waits for it on a virtual thread, so that a running
+ * application does not hold a platform thread of its own.
  *
  * @author Patrik Karlström <patrik@trixon.se>
  */
 public class Executor implements Runnable {
 
+    private static final long MIB = 1024 * 1024;
+    private static final int STARTUP_PROFILE_LIMIT = 20;
+    private static final long STARTUP_PROFILE_QUIET_PERIOD = 3000;
+    private boolean mCancelled;
     private Thread mExecutorThread;
-    private final InputOutput mInputOutput;
+    private final CompletableFuture<Integer> mEnded = new CompletableFuture<>();
+    private InputOutput mInputOutput;
     private FoldHandle mMainFoldHandle;
-    private final OutputHelper mOutputHelper;
+    private OutputHelper mOutputHelper;
+    private boolean mPersistent = true;
+    private volatile ProcessSampler mProcessSampler;
     private ProgressHandle mProgressHandle;
-    private final AtomicBoolean mRunning = new AtomicBoolean(false);
+    private final CompletableFuture<Void> mReady = new CompletableFuture<>();
+    private volatile long mReadyNanos = -1;
+    private volatile Pattern mReadyPattern;
+    private volatile long mRunNanos = -1;
+    private volatile long mStartNanos;
+    private volatile StartupProfile mStartupProfile;
+    private final AtomicReference<State> mState = new AtomicReference<>(State.QUEUED);
     private final StatusDisplayer mStatusDisplayer = StatusDisplayer.getDefault();
     private final Task mTask;
 
     public Executor(Task task) {
         mTask = task;
-        mInputOutput = IOProvider.getDefault().getIO(mTask.getName(), false);
-        mInputOutput.select();
+    }
 
-        mOutputHelper = new OutputHelper(mTask.getName(), mInputOutput, false);
-        mOutputHelper.reset();
+    /**
+     * Requests the task to stop.
+     *
+     * @return false if it has already ended or is being cancelled
+     */
+    public boolean cancel() {
+        if (transition(State.QUEUED, State.ENDED)) {
+            ExecutorManager.getInstance().unregister(this);
+            mReady.complete(null);
+            mEnded.complete(-1);
+            return true;
+        }
+
+        if (transition(State.STARTING, State.CANCELLING) || transition(State.RUNNING, State.CANCELLING)) {
+            mExecutorThread.interrupt();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Waits until the application reports ready, see
+     * {@link #setReadyPattern(Pattern)}, or has ended.
+     *
+     * @param timeout
+     * @param unit
+     * @return false if the timeout elapsed first
+     * @throws InterruptedException
+     */
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            mReady.get(timeout, unit);
+            return true;
+        } catch (ExecutionException ex) {
+            return true;
+        } catch (TimeoutException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the CPU and memory sampler of the running process, or null if
+     * it has not been started.
+     *
+     * @return
+     */
+    public ProcessSampler getProcessSampler() {
+        return mProcessSampler;
+    }
+
+    /**
+     * Returns the time from process start until the output matched the ready
+     * pattern, in nanoseconds, or -1 if it has not.
+     *
+     * @return
+     */
+    public long getReadyNanos() {
+        return mReadyNanos;
+    }
+
+    public Pattern getReadyPattern() {
+        return mReadyPattern;
+    }
+
+    /**
+     * Returns the time from process start until it exited, in nanoseconds, or
+     * -1 if it has not.
+     *
+     * @return
+     */
+    public long getRunNanos() {
+        return mRunNanos;
+    }
+
+    /**
+     * Returns the startup timings of the run, or null if the task does not
+     * log them, see {@link Task#setStartupLog(boolean)}.
+     *
+     * @return
+     */
+    public StartupProfile getStartupProfile() {
+        return mStartupProfile;
+    }
+
+    public State getState() {
+        return mState.get();
+    }
+
+    public Task getTask() {
+        return mTask;
+    }
+
+    public boolean isPersistent() {
+        return mPersistent;
+    }
+
+    public boolean isReady() {
+        return mReady.isDone();
     }
 
     @Override
     public void run() {
-        mRunning.set(true);
-        var allowToCancel = (Cancellable) () -> {
-            mRunning.set(false);
-            mExecutorThread.interrupt();
-            mProgressHandle.finish();
-            ExecutorManager.getInstance().getExecutors().remove(mTask.getId());
-            jobEnded(OutputLineMode.WARNING, Dict.CANCELED.toString());
+        mExecutorThread = Thread.ofVirtual().name("Executor-" + mTask.getName()).unstarted(() -> {
+            int exitCode = -1;
+            try {
+                mOutputHelper.start();
+                mOutputHelper.printSectionHeader(OutputLineMode.INFO, Dict.START.toString(), Dict.APPLICATION.toLower(), mTask.getName());
+                mMainFoldHandle = IOFolding.startFold(mInputOutput, true);
+                mInputOutput.getOut().println();
+                mInputOutput.getOut().println(mTask.getCommandAsString());
 
-            return true;
-        };
+                if (transition(State.STARTING, State.RUNNING)) {
+                    purgeBeforeLaunch();
+                    long start = System.currentTimeMillis();
+                    exitCode = runProcess(mTask.getCommand());
+                    //nvm - a cancel that raced with the exit must not close the history and log channels
+                    Thread.interrupted();
+                    recordRun(start, exitCode, mCancelled);
+                    DiskUsageAnalyzer.getInstance().analyze(mTask);
+                    if (mCancelled) {
+                        jobEnded(OutputLineMode.WARNING, Dict.CANCELED.toString());
+                    } else if (exitCode == 0) {
+                        jobEnded(OutputLineMode.OK, Dict.DONE.toString());
+                    } else {
+                        jobEnded(OutputLineMode.ERROR, Dict.FAILED.toString());
+                    }
 
-        mProgressHandle = ProgressHandle.createHandle(mTask.getName(), allowToCancel);
+                    if (mPersistent) {
+                        mTask.setLastRun(System.currentTimeMillis());
+                        StorageManager.save(mTask);
+                    }
+                } else {
+                    jobEnded(OutputLineMode.WARNING, Dict.CANCELED.toString());
+                }
+            } finally {
+                mProgressHandle.finish();
+                end();
+                ExecutorManager.getInstance().unregister(this);
+                mReady.complete(null);
+                mEnded.complete(exitCode);
+            }
+        });
+
+        if (!transition(State.QUEUED, State.STARTING)) {
+            return;
+        }
+
+        mInputOutput = IOProvider.getDefault().getIO(mTask.getName(), false);
+        mInputOutput.select();
+
+        mOutputHelper = new OutputHelper(mTask.getName(), mInputOutput, false);
+        mOutputHelper.reset();
+
+        mProgressHandle = ProgressHandle.createHandle(mTask.getName(), this::cancel);
         mProgressHandle.start();
         mProgressHandle.switchToIndeterminate();
 
-        mExecutorThread = new Thread(() -> {
-            mOutputHelper.start();
-            mOutputHelper.printSectionHeader(OutputLineMode.INFO, Dict.START.toString(), Dict.APPLICATION.toLower(), mTask.getName());
-            mMainFoldHandle = IOFolding.startFold(mInputOutput, true);
-            mInputOutput.getOut().println();
-            mInputOutput.getOut().println(String.join(" ", mTask.getCommand()));
-
-            var result = runProcess(mTask.getCommand());
-            if (result == 0) {
-                jobEnded(OutputLineMode.OK, Dict.DONE.toString());
-            } else {
-                jobEnded(OutputLineMode.ERROR, Dict.FAILED.toString());
-            }
+        mExecutorThread.start();
+    }
 
-            mTask.setLastRun(System.currentTimeMillis());
-            StorageManager.save();
+    /**
+     * Sets the pattern of the output line that marks the application as
+     * ready. If null, the first line of output does. Has to be set before
+     * the executor is started.
+     *
+     * @param readyPattern
+     */
+    public void setReadyPattern(Pattern readyPattern) {
+        mReadyPattern = readyPattern;
+    }
 
-            mProgressHandle.finish();
-            ExecutorManager.getInstance().getExecutors().remove(mTask.getId());
-        }, "Executor");
+    /**
+     * If false, the run is neither stored as the last run of the task nor
+     * added to its run history. Has to be set before the executor is started.
+     *
+     * @param persistent
+     */
+    public void setPersistent(boolean persistent) {
+        mPersistent = persistent;
+    }
 
-        mExecutorThread.start();
+    /**
+     * Completes with the exit code, or -1 if the process did not run to its
+     * end, once the executor has ended.
+     */
+    CompletableFuture<Integer> getEndedFuture() {
+        return mEnded;
+    }
+
+    CompletableFuture<Void> getReadyFuture() {
+        return mReady;
+    }
+
+    /**
+     * Ends from RUNNING, or from CANCELLING if a cancel came in, through the
+     * same compare-and-set as every other transition.
+     */
+    private void end() {
+        State state;
+        do {
+            state = getState();
+        } while (state != State.ENDED && !transition(state, State.ENDED));
     }
 
     private void jobEnded(OutputLineMode outputLineMode, String action) {
@@ -103,6 +286,106 @@ public class Executor implements Runnable {
         mOutputHelper.printSummary(outputLineMode, action, Dict.APPLICATION.toLower());
     }
 
+    /**
+     * Replaces the default processor, that writes each line to the output
+     * window as it is read, with one that hands it over to the pipeline, the
+     * startup profile and the run log.
+     */
+    private InputProcessor newInputProcessor(OutputPipeline outputPipeline, RunLog runLog, StartupProfile startupProfile, boolean err) {
+        return InputProcessors.bridge(new LineProcessor() {
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public void processLine(String line) {
+                if (!mReady.isDone() && (mReadyPattern == null || mReadyPattern.matcher(line).find())) {
+                    mReadyNanos = System.nanoTime() - mStartNanos;
+                    mReady.complete(null);
+                }
+                outputPipeline.offer(line, err);
+                if (startupProfile != null) {
+                    startupProfile.accept(line);
+                }
+                if (runLog != null) {
+                    runLog.append(line);
+                }
+            }
+
+            @Override
+            public void reset() {
+            }
+        });
+    }
+
+    private RunLog openRunLog() {
+        try {
+            return StorageManager.getInstance().getRunLogManager().open(mTask);
+        } catch (IOException ex) {
+            mInputOutput.getErr().println(ex);
+            return null;
+        }
+    }
+
+    private void printStartupProfile(StartupProfile startupProfile) {
+        var out = mInputOutput.getOut();
+        out.println();
+        out.println(NbBundle.getMessage(Executor.class, "startupProfile", startupProfile.getTotal()));
+        out.println(NbBundle.getMessage(Executor.class, "startupProfilePhases"));
+        startupProfile.getPhases().stream().limit(STARTUP_PROFILE_LIMIT)
+                .forEach(entry -> out.println("%8d ms  %s".formatted(entry.getValue(), entry.getKey())));
+        out.println(NbBundle.getMessage(Executor.class, "startupProfileModules"));
+        startupProfile.getModules().stream().limit(STARTUP_PROFILE_LIMIT)
+                .forEach(entry -> out.println("%8d ms  %s".formatted(entry.getValue(), entry.getKey())));
+        out.println();
+    }
+
+    private void processSampled(ProcessSampler processSampler) {
+        mProgressHandle.progress(NbBundle.getMessage(Executor.class, "processSample",
+                processSampler.getCpuLoad(),
+                processSampler.getRss() / MIB
+        ));
+    }
+
+    private void purgeBeforeLaunch() {
+        var diskUsageAnalyzer = DiskUsageAnalyzer.getInstance();
+        var purgePolicy = diskUsageAnalyzer.getPurgePolicy();
+        if (!purgePolicy.beforeLaunch() || !purgePolicy.isActive()) {
+            return;
+        }
+
+        try {
+            var purged = diskUsageAnalyzer.purgeFiles(mTask, purgePolicy);
+            if (purged.files() > 0) {
+                mInputOutput.getOut().println(NbBundle.getMessage(Executor.class, "purged", purged.files(), FileUtils.byteCountToDisplaySize(purged.bytes())));
+            }
+        } catch (IOException ex) {
+            mInputOutput.getErr().println(ex);
+        }
+    }
+
+    private void recordRun(long start, int exitCode, boolean cancelled) {
+        var processSampler = mProcessSampler;
+        long peakRss = processSampler == null ? 0 : processSampler.getPeakRss();
+        if (peakRss > 0) {
+            mInputOutput.getOut().println(NbBundle.getMessage(Executor.class, "processPeak",
+                    peakRss / MIB,
+                    processSampler.getCpuTime() / 1_000_000_000.0
+            ));
+        }
+
+        if (!mPersistent) {
+            return;
+        }
+
+        var entry = new RunHistory.Entry(RunHistory.toUuid(mTask.getId()), start, System.currentTimeMillis(), exitCode, cancelled, peakRss);
+        try {
+            StorageManager.getInstance().getRunHistory().append(entry);
+        } catch (IOException ex) {
+            Exceptions.printStackTrace(ex);
+        }
+    }
+
     private int runProcess(List<String> command) {
         var processBuilder = org.netbeans.api.extexecution.base.ProcessBuilder.getLocal();
         processBuilder.setExecutable(command.getFirst());
@@ -118,24 +401,78 @@ public class Executor implements Runnable {
                 .outLineBased(true)
                 .showProgress(false);
 
-        var service = ExecutionService.newService(
-                processBuilder,
-                descriptor,
-                mTask.getName());
+        var startupProfile = mTask.isStartupLog() ? new StartupProfile(this::printStartupProfile, STARTUP_PROFILE_QUIET_PERIOD) : null;
+        mStartupProfile = startupProfile;
 
-        var task = service.run();
+        try (var outputPipeline = new OutputPipeline(mInputOutput); var runLog = openRunLog()) {
+            descriptor = descriptor
+                    .outProcessorFactory((ExecutionDescriptor.InputProcessorFactory2) defaultProcessor -> newInputProcessor(outputPipeline, runLog, startupProfile, false))
+                    .errProcessorFactory((ExecutionDescriptor.InputProcessorFactory2) defaultProcessor -> newInputProcessor(outputPipeline, runLog, startupProfile, true));
 
-        try {
-            return task.get();
-        } catch (InterruptedException ex) {
-            task.cancel(true);
-        } catch (ExecutionException ex) {
-            task.cancel(true);
-            mInputOutput.getErr().println(ex);
-            Exceptions.printStackTrace(ex);
+            var service = ExecutionService.newService(
+                    () -> {
+                        mStartNanos = System.nanoTime();
+                        var process = processBuilder.call();
+                        mProcessSampler = new ProcessSampler(process.toHandle(), ExecutorManager.getInstance().getSampleInterval(), this::processSampled);
+                        return process;
+                    },
+                    descriptor,
+                    mTask.getName());
+
+            var task = service.run();
+
+            try {
+                int exitCode = task.get();
+                mRunNanos = System.nanoTime() - mStartNanos;
+                //nvm - cancelled after the exit, keep the run log flushable
+                Thread.interrupted();
+
+                return exitCode;
+            } catch (InterruptedException ex) {
+                //nvm - cancelled, stop the process
+                mCancelled = true;
+                task.cancel(true);
+            } catch (ExecutionException ex) {
+                task.cancel(true);
+                mInputOutput.getErr().println(ex);
+                Exceptions.printStackTrace(ex);
+            }
+        } finally {
+            var processSampler = mProcessSampler;
+            if (processSampler != null) {
+                processSampler.close();
+            }
+            if (startupProfile != null) {
+                startupProfile.close();
+            }
         }
 
         return -1;
     }
 
+    private boolean transition(State from, State to) {
+        if (mState.compareAndSet(from, to)) {
+            ExecutorManager.getInstance().stateChanged(this);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * The run state of an executor. Transitions are QUEUED, STARTING, RUNNING
+     * and ENDED, where STARTING and RUNNING may go through CANCELLING on the
+     * way to ENDED, and QUEUED may go directly to ENDED.
+     */
+    public enum State {
+        QUEUED,
+        STARTING,
+        RUNNING,
+        CANCELLING,
+        ENDED;
+
+        public boolean isActive() {
+            return this != ENDED;
+        }
+    }
 }
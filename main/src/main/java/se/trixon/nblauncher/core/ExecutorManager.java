@@ -15,17 +15,35 @@
  */
 package se.trixon.nblauncher.core;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.prefs.Preferences;
+import java.util.regex.Pattern;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import org.openide.util.NbPreferences;
 import se.trixon.almond.nbp.dialogs.NbMessage;
 import se.trixon.almond.util.Dict;
+import se.trixon.almond.util.fx.FxHelper;
 
 /**
+ * Registry of the active executors, keyed by task id.
+ * <p>
+ * At most one executor per task is registered at a time. It is registered
+ * before it starts and removed once it has ended.
  *
  * @author Patrik Karlström <patrik@trixon.se>
  */
 public class ExecutorManager {
 
-    private final HashMap<String, Executor> mExecutors = new HashMap<>();
+    private static final String KEY_SAMPLE_INTERVAL = "sampleInterval";
+    private final ConcurrentHashMap<String, Executor> mExecutors = new ConcurrentHashMap<>();
+    private final Preferences mPreferences = NbPreferences.forModule(ExecutorManager.class).node("executor");
+    private final ReadOnlyObjectWrapper<Map<String, Executor.State>> mSnapshotProperty = new ReadOnlyObjectWrapper<>(Map.of());
+    private final AtomicBoolean mSnapshotScheduled = new AtomicBoolean(false);
 
     public static ExecutorManager getInstance() {
         return Holder.INSTANCE;
@@ -34,22 +52,121 @@ public class ExecutorManager {
     private ExecutorManager() {
     }
 
-    public HashMap<String, Executor> getExecutors() {
-        return mExecutors;
+    public Executor getExecutor(String taskId) {
+        return mExecutors.get(taskId);
+    }
+
+    public Map<String, Executor> getExecutors() {
+        return Collections.unmodifiableMap(mExecutors);
+    }
+
+    /**
+     * Returns the time between CPU and memory samples of running
+     * applications, in milliseconds.
+     *
+     * @return
+     */
+    public long getSampleInterval() {
+        return mPreferences.getLong(KEY_SAMPLE_INTERVAL, 1000);
+    }
+
+    /**
+     * Returns the state of the executor of the task, or ENDED if there is
+     * none.
+     *
+     * @param taskId
+     * @return
+     */
+    public Executor.State getState(String taskId) {
+        var executor = mExecutors.get(taskId);
+
+        return executor == null ? Executor.State.ENDED : executor.getState();
+    }
+
+    public boolean isActive(String taskId) {
+        return getState(taskId).isActive();
     }
 
     public void requestStart(Task task) {
-        if (mExecutors.containsKey(task.getId())) {
+        if (start(task) == null) {
             NbMessage.error(Dict.Dialog.TITLE_TASK_RUNNING.toString(), Dict.Dialog.MESSAGE_TASK_RUNNING.toString());
-        } else {
-            start(task);
         }
     }
 
-    public void start(Task task) {
+    /**
+     * Sets the time between samples, in milliseconds, at least 100.
+     *
+     * @param sampleInterval
+     */
+    public void setSampleInterval(long sampleInterval) {
+        mPreferences.putLong(KEY_SAMPLE_INTERVAL, Math.max(100, sampleInterval));
+    }
+
+    /**
+     * The states of the active executors, by task id. The map is immutable
+     * and replaced on the FX thread when a state changes.
+     *
+     * @return
+     */
+    public ReadOnlyObjectProperty<Map<String, Executor.State>> snapshotProperty() {
+        return mSnapshotProperty.getReadOnlyProperty();
+    }
+
+    /**
+     * Registers and starts a new executor for the task.
+     *
+     * @param task
+     * @return the executor, or null if the task already has an active one
+     */
+    public Executor start(Task task) {
+        return start(task, null);
+    }
+
+    /**
+     * Registers and starts a new executor for the task.
+     *
+     * @param task
+     * @param readyPattern see {@link Executor#setReadyPattern(Pattern)}
+     * @return the executor, or null if the task already has an active one
+     */
+    public Executor start(Task task, Pattern readyPattern) {
         var executor = new Executor(task);
-        mExecutors.put(task.getId(), executor);
+        executor.setReadyPattern(readyPattern);
+
+        return start(executor);
+    }
+
+    /**
+     * Registers and starts a configured executor.
+     *
+     * @param executor
+     * @return the executor, or null if the task already has an active one
+     */
+    Executor start(Executor executor) {
+        if (mExecutors.putIfAbsent(executor.getTask().getId(), executor) != null) {
+            return null;
+        }
+
+        stateChanged(executor);
         executor.run();
+
+        return executor;
+    }
+
+    void stateChanged(Executor executor) {
+        if (TaskManager.getInstance().isGui() && mSnapshotScheduled.compareAndSet(false, true)) {
+            FxHelper.runLater(() -> {
+                mSnapshotScheduled.set(false);
+                var snapshot = new HashMap<String, Executor.State>();
+                mExecutors.forEach((id, e) -> snapshot.put(id, e.getState()));
+                mSnapshotProperty.set(Map.copyOf(snapshot));
+            });
+        }
+    }
+
+    void unregister(Executor executor) {
+        mExecutors.remove(executor.getTask().getId(), executor);
+        stateChanged(executor);
     }
 
     private static class Holder {
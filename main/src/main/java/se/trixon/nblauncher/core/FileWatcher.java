@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.openide.util.Exceptions;
+
+/**
+ * Watches a file and runs the listener on a background thread once the file
+ * has been left alone for the debounce period.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class FileWatcher implements Closeable {
+
+    private volatile long mDebounce = 500;
+    private final ScheduledExecutorService mExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "FileWatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final File mFile;
+    private final Runnable mListener;
+    private ScheduledFuture<?> mScheduledFuture;
+    private WatchService mWatchService;
+
+    public FileWatcher(File file, Runnable listener) {
+        mFile = file;
+        mListener = listener;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (mWatchService != null) {
+            mWatchService.close();
+        }
+        mExecutorService.shutdownNow();
+    }
+
+    public long getDebounce() {
+        return mDebounce;
+    }
+
+    /**
+     * Sets the time, in milliseconds, the file has to be left alone before
+     * the listener runs.
+     *
+     * @param debounce
+     */
+    public void setDebounce(long debounce) {
+        mDebounce = debounce;
+    }
+
+    /**
+     * Starts watching, and runs the listener once right away so that it can
+     * take its baseline.
+     *
+     * @throws IOException
+     */
+    public synchronized void start() throws IOException {
+        if (mWatchService != null) {
+            return;
+        }
+
+        var dir = mFile.getAbsoluteFile().getParentFile().toPath();
+        var name = Path.of(mFile.getName());
+        var watchService = FileSystems.getDefault().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        mWatchService = watchService;
+        mExecutorService.execute(this::runListener);
+
+        Thread.ofPlatform().daemon().name("FileWatcher-" + mFile.getName()).start(() -> {
+            try {
+                while (true) {
+                    var watchKey = watchService.take();
+                    for (var event : watchKey.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context())) {
+                            schedule();
+                            break;
+                        }
+                    }
+                    if (!watchKey.reset()) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                //nvm - closed
+            }
+        });
+    }
+
+    private void runListener() {
+        try {
+            mListener.run();
+        } catch (RuntimeException ex) {
+            Exceptions.printStackTrace(ex);
+        }
+    }
+
+    private synchronized void schedule() {
+        if (mExecutorService.isShutdown()) {
+            return;
+        }
+        if (mScheduledFuture != null) {
+            mScheduledFuture.cancel(false);
+        }
+        mScheduledFuture = mExecutorService.schedule(this::runListener, mDebounce, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import org.netbeans.api.progress.ProgressHandle;
+import org.openide.util.Exceptions;
+import org.openide.util.NbBundle;
+
+/**
+ * Starts a group of tasks, spreading the starts out so that the instances do
+ * not compete for disk and CPU while loading.
+ * <p>
+ * At most <code>parallelism</code> instances are starting, launched but not
+ * yet ready, at any time. Consecutive starts are separated by the stagger,
+ * either a fixed delay or until the previous instance is ready.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class GroupLauncher {
+
+    private final AtomicBoolean mCancelled = new AtomicBoolean(false);
+    private long mDelay = 2000;
+    private int mParallelism = 2;
+    private Pattern mReadyPattern;
+    private long mReadyTimeout = 120_000;
+    private Stagger mStagger = Stagger.READY;
+    private final List<Task> mTasks;
+    private volatile Thread mThread;
+
+    public GroupLauncher(Collection<Task> tasks) {
+        mTasks = List.copyOf(tasks);
+    }
+
+    /**
+     * Stops launching the remaining tasks. Instances already started keep
+     * running.
+     *
+     * @return
+     */
+    public boolean cancel() {
+        mCancelled.set(true);
+        var thread = mThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+
+        return true;
+    }
+
+    public long getDelay() {
+        return mDelay;
+    }
+
+    public int getParallelism() {
+        return mParallelism;
+    }
+
+    public Pattern getReadyPattern() {
+        return mReadyPattern;
+    }
+
+    public long getReadyTimeout() {
+        return mReadyTimeout;
+    }
+
+    public Stagger getStagger() {
+        return mStagger;
+    }
+
+    public List<Task> getTasks() {
+        return mTasks;
+    }
+
+    /**
+     * Sets the time, in milliseconds, between consecutive starts when the
+     * stagger is {@link Stagger#FIXED}.
+     *
+     * @param delay
+     */
+    public void setDelay(long delay) {
+        mDelay = delay;
+    }
+
+    public void setParallelism(int parallelism) {
+        mParallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @param readyPattern see {@link Executor#setReadyPattern(Pattern)}
+     */
+    public void setReadyPattern(Pattern readyPattern) {
+        mReadyPattern = readyPattern;
+    }
+
+    /**
+     * Sets the time, in milliseconds, after which an instance that has not
+     * reported ready is treated as if it had.
+     *
+     * @param readyTimeout
+     */
+    public void setReadyTimeout(long readyTimeout) {
+        mReadyTimeout = readyTimeout;
+    }
+
+    public void setStagger(Stagger stagger) {
+        mStagger = stagger;
+    }
+
+    public void start() {
+        var progressHandle = ProgressHandle.createHandle(NbBundle.getMessage(GroupLauncher.class, "groupLaunch", mTasks.size()), this::cancel);
+        progressHandle.start(mTasks.size());
+        mThread = Thread.ofVirtual().name("GroupLauncher").start(() -> launch(progressHandle));
+    }
+
+    private void launch(ProgressHandle progressHandle) {
+        var permits = new Semaphore(mParallelism);
+        var readyCount = new AtomicInteger();
+        var finished = new AtomicBoolean(false);
+        var readyFutures = new ArrayList<CompletableFuture<Void>>();
+
+        try {
+            for (var task : mTasks) {
+                permits.acquire();
+                if (mCancelled.get()) {
+                    break;
+                }
+
+                var executor = ExecutorManager.getInstance().start(task, mReadyPattern);
+                var ready = executor == null
+                        ? CompletableFuture.<Void>completedFuture(null)
+                        : executor.getReadyFuture().copy().completeOnTimeout(null, mReadyTimeout, TimeUnit.MILLISECONDS);
+                ready.whenComplete((r, e) -> {
+                    permits.release();
+                    synchronized (finished) {
+                        if (!finished.get()) {
+                            progressHandle.progress(task.getName(), readyCount.incrementAndGet());
+                        }
+                    }
+                });
+                readyFutures.add(ready);
+
+                if (executor != null && task != mTasks.getLast()) {
+                    switch (mStagger) {
+                        case FIXED ->
+                            Thread.sleep(mDelay);
+                        case READY ->
+                            ready.get();
+                    }
+                }
+            }
+
+            CompletableFuture.allOf(readyFutures.toArray(CompletableFuture[]::new)).get();
+        } catch (InterruptedException ex) {
+            //nvm - cancelled
+        } catch (ExecutionException ex) {
+            Exceptions.printStackTrace(ex);
+        } finally {
+            synchronized (finished) {
+                finished.set(true);
+                progressHandle.finish();
+            }
+        }
+    }
+
+    public enum Stagger {
+        FIXED,
+        READY;
+    }
+}
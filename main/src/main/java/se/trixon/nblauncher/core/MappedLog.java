@@ -0,0 +1,156 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Read only, line indexed, view of a log file that is memory mapped instead of
+ * read into the heap.
+ * <p>
+ * Only the start of every {@value #BLOCK_LINES}th line is kept, the lines in
+ * between are found by scanning from there. Compressed logs are first
+ * decompressed to a temporary file. Files larger than 2 GiB are viewed from
+ * their last 2 GiB. Opening scans the whole file, so it should be done off
+ * the FX thread.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class MappedLog implements Closeable {
+
+    private static final int BLOCK_LINES = 256;
+    private int[] mBlockStarts = new int[64];
+    private final MappedByteBuffer mBuffer;
+    private int mCursorLine = -1;
+    private int mCursorStart;
+    private int mLineCount;
+    private final File mTempFile;
+
+    public MappedLog(File file) throws IOException {
+        File mappedFile = file;
+        if (file.getName().endsWith(RunLogManager.EXT_GZ)) {
+            mTempFile = File.createTempFile("nblauncher-log", RunLogManager.EXT_LOG);
+            try (var inputStream = new GZIPInputStream(new FileInputStream(file), 64 * 1024); var outputStream = new FileOutputStream(mTempFile)) {
+                inputStream.transferTo(outputStream);
+            } catch (IOException ex) {
+                Files.deleteIfExists(mTempFile.toPath());
+                throw ex;
+            }
+            mappedFile = mTempFile;
+        } else {
+            mTempFile = null;
+        }
+
+        try (var channel = FileChannel.open(mappedFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = Math.max(0, size - Integer.MAX_VALUE);
+            mBuffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size - position);
+        }
+
+        index();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mTempFile != null) {
+            Files.deleteIfExists(mTempFile.toPath());
+        }
+    }
+
+    public String getLine(int index) {
+        int start = lineStart(index);
+        int end = start;
+        int limit = mBuffer.limit();
+        while (end < limit && mBuffer.get(end) != '\n') {
+            end++;
+        }
+        if (end > start && mBuffer.get(end - 1) == '\r') {
+            end--;
+        }
+
+        var bytes = new byte[Math.max(0, end - start)];
+        mBuffer.get(start, bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int getLineCount() {
+        return mLineCount;
+    }
+
+    private void addLine(int start) {
+        if (mLineCount % BLOCK_LINES == 0) {
+            int block = mLineCount / BLOCK_LINES;
+            if (block == mBlockStarts.length) {
+                mBlockStarts = Arrays.copyOf(mBlockStarts, block * 2);
+            }
+            mBlockStarts[block] = start;
+        }
+        mLineCount++;
+    }
+
+    private void index() {
+        int limit = mBuffer.limit();
+        if (limit == 0) {
+            return;
+        }
+
+        addLine(0);
+        for (int i = 0; i < limit; i++) {
+            if (mBuffer.get(i) == '\n' && i + 1 < limit) {
+                addLine(i + 1);
+            }
+        }
+    }
+
+    /**
+     * Scans from the nearest block start, or from the previous line when
+     * reading forward, as a list view does.
+     */
+    private int lineStart(int index) {
+        int line;
+        int start;
+        if (mCursorLine >= 0 && index >= mCursorLine && index - mCursorLine < BLOCK_LINES) {
+            line = mCursorLine;
+            start = mCursorStart;
+        } else {
+            line = index / BLOCK_LINES * BLOCK_LINES;
+            start = mBlockStarts[index / BLOCK_LINES];
+        }
+
+        int limit = mBuffer.limit();
+        while (line < index) {
+            while (start < limit && mBuffer.get(start++) != '\n') {
+            }
+            line++;
+        }
+        mCursorLine = index;
+        mCursorStart = start;
+
+        return start;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openide.util.Exceptions;
+import org.openide.util.NbBundle;
+import org.openide.windows.InputOutput;
+import org.openide.windows.OutputWriter;
+
+/**
+ * Decouples reading process output from writing it to an output window.
+ * <p>
+ * Lines are put in a bounded ring buffer without ever waiting for the window.
+ * A shared background thread writes them in batches, at most
+ * <code>maxBatch</code> lines per interval. When the buffer is full the
+ * oldest lines are dropped, and the number dropped is written in their place.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class OutputPipeline implements Closeable {
+
+    private static final ScheduledExecutorService sScheduledExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "OutputPipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final boolean[] mBatchErr;
+    private final String[] mBatchLines;
+    private final StringBuilder mBuilder = new StringBuilder();
+    private long mDropped;
+    private final AtomicLong mDroppedTotal = new AtomicLong();
+    private final boolean[] mErr;
+    private final Object mFlushLock = new Object();
+    private final ScheduledFuture<?> mFuture;
+    private int mHead;
+    private final InputOutput mInputOutput;
+    private final String[] mLines;
+    private int mSize;
+
+    public OutputPipeline(InputOutput inputOutput) {
+        this(inputOutput, 8192, 100, 2000);
+    }
+
+    /**
+     *
+     * @param inputOutput
+     * @param capacity the number of lines to buffer
+     * @param interval the time between writes, in milliseconds
+     * @param maxBatch the maximum number of lines per write
+     */
+    public OutputPipeline(InputOutput inputOutput, int capacity, long interval, int maxBatch) {
+        mInputOutput = inputOutput;
+        mLines = new String[capacity];
+        mErr = new boolean[capacity];
+        mBatchLines = new String[maxBatch];
+        mBatchErr = new boolean[maxBatch];
+        mFuture = sScheduledExecutorService.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException ex) {
+                Exceptions.printStackTrace(ex);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the scheduled writes and writes all buffered lines.
+     */
+    @Override
+    public void close() {
+        mFuture.cancel(false);
+        while (flush()) {
+            //nvm - until empty
+        }
+    }
+
+    /**
+     * Returns the total number of lines dropped so far.
+     *
+     * @return
+     */
+    public long getDroppedCount() {
+        return mDroppedTotal.get();
+    }
+
+    /**
+     * Adds a line to the buffer, dropping the oldest buffered line if full.
+     *
+     * @param line
+     * @param err
+     */
+    public void offer(String line, boolean err) {
+        synchronized (mLines) {
+            if (mSize == mLines.length) {
+                mHead = (mHead + 1) % mLines.length;
+                mSize--;
+                mDropped++;
+            }
+
+            int tail = (mHead + mSize) % mLines.length;
+            mLines[tail] = line;
+            mErr[tail] = err;
+            mSize++;
+        }
+    }
+
+    /**
+     * Writes one batch.
+     *
+     * @return true if more lines remain in the buffer
+     */
+    private boolean flush() {
+        synchronized (mFlushLock) {
+            int count;
+            long dropped;
+            boolean remaining;
+            synchronized (mLines) {
+                count = Math.min(mSize, mBatchLines.length);
+                for (int i = 0; i < count; i++) {
+                    mBatchLines[i] = mLines[mHead];
+                    mBatchErr[i] = mErr[mHead];
+                    mLines[mHead] = null;
+                    mHead = (mHead + 1) % mLines.length;
+                }
+                mSize -= count;
+                remaining = mSize > 0;
+                dropped = mDropped;
+                mDropped = 0;
+            }
+
+            if (dropped > 0) {
+                mDroppedTotal.addAndGet(dropped);
+                mInputOutput.getErr().println(NbBundle.getMessage(OutputPipeline.class, "outputDropped", dropped));
+            }
+
+            for (int i = 0; i < count; i++) {
+                mBuilder.append(mBatchLines[i]).append('\n');
+                mBatchLines[i] = null;
+                if (i == count - 1 || mBatchErr[i] != mBatchErr[i + 1]) {
+                    write(mBatchErr[i] ? mInputOutput.getErr() : mInputOutput.getOut());
+                }
+            }
+
+            return remaining;
+        }
+    }
+
+    private void write(OutputWriter writer) {
+        writer.print(mBuilder);
+        writer.flush();
+        mBuilder.setLength(0);
+    }
+}
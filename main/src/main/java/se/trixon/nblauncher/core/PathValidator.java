@@ -0,0 +1,376 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.MapChangeListener;
+import org.apache.commons.lang3.SystemUtils;
+import se.trixon.almond.util.fx.FxHelper;
+
+/**
+ * Keeps track of whether the executable and the Java directory of each task
+ * exist.
+ * <p>
+ * Every path is checked once, and then watched through the nearest existing
+ * ancestor of its parent directory. A path is only checked again when an
+ * event in that directory concerns it, so the cost follows the changes on
+ * disk rather than the number of tasks.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class PathValidator {
+
+    private static final Logger LOGGER = Logger.getLogger(PathValidator.class.getName());
+    private final ExecutorService mExecutorService = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "PathValidator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ReadOnlyObjectWrapper<Map<String, Validity>> mInvalidProperty = new ReadOnlyObjectWrapper<>(Map.of());
+    private final ConcurrentHashMap<String, Validity> mInvalidTasks = new ConcurrentHashMap<>();
+    private final AtomicBoolean mPublishScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean mStarted = new AtomicBoolean(false);
+    private final HashMap<Target, Boolean> mTargetStates = new HashMap<>();
+    private final HashMap<Target, HashSet<String>> mTargetTasks = new HashMap<>();
+    private final HashMap<Target, List<Path>> mTargetWatchDirs = new HashMap<>();
+    private final HashMap<String, List<Target>> mTaskTargets = new HashMap<>();
+    private final HashMap<Path, HashSet<Target>> mWatchDirTargets = new HashMap<>();
+    private final HashMap<Path, WatchKey> mWatchKeys = new HashMap<>();
+    private WatchService mWatchService;
+
+    public static PathValidator getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private PathValidator() {
+    }
+
+    /**
+     * Returns the problems of the task, or null if its paths are valid or
+     * have not been checked yet.
+     *
+     * @param taskId
+     * @return
+     */
+    public Validity getValidity(String taskId) {
+        return mInvalidTasks.get(taskId);
+    }
+
+    /**
+     * Holds the tasks with missing paths, by id, updated on the FX thread.
+     *
+     * @return
+     */
+    public ReadOnlyObjectProperty<Map<String, Validity>> invalidProperty() {
+        return mInvalidProperty.getReadOnlyProperty();
+    }
+
+    public void remove(String taskId) {
+        mExecutorService.execute(() -> {
+            setTargets(taskId, List.of());
+            if (mInvalidTasks.remove(taskId) != null) {
+                publish();
+            }
+        });
+    }
+
+    /**
+     * Checks all tasks, once they have been loaded, and follows the task map
+     * from then on. Has to be called on the FX thread.
+     */
+    public void start() {
+        var taskManager = TaskManager.getInstance();
+        if (taskManager.isLoading()) {
+            taskManager.loadingProperty().addListener((p, o, n) -> {
+                if (!n) {
+                    start();
+                }
+            });
+            return;
+        }
+        if (!mStarted.compareAndSet(false, true)) {
+            return;
+        }
+
+        taskManager.getIdToItem().addListener((MapChangeListener.Change<? extends String, ? extends Task> change) -> {
+            if (change.wasAdded()) {
+                update(change.getValueAdded());
+            } else if (change.wasRemoved()) {
+                remove(change.getKey());
+            }
+        });
+        for (var task : taskManager.getItems()) {
+            update(task);
+        }
+    }
+
+    /**
+     * Checks the paths of a new or edited task.
+     *
+     * @param task
+     */
+    public void update(Task task) {
+        var taskId = task.getId();
+        var targets = new ArrayList<Target>(2);
+        if (task.getExecPath() != null) {
+            targets.add(new Target(task.getExecPath().toPath().toAbsolutePath().normalize(), false));
+        }
+        if (task.isJavaDirActivated() && task.getJavaDir() != null) {
+            targets.add(new Target(task.getJavaDir().toPath().toAbsolutePath().normalize(), true));
+        }
+
+        mExecutorService.execute(() -> {
+            setTargets(taskId, targets);
+            updateValidity(taskId);
+        });
+    }
+
+    private boolean check(Target target) {
+        var path = target.path();
+        if (target.directory()) {
+            return Files.isDirectory(path) && Files.exists(path.resolve(SystemUtils.IS_OS_WINDOWS ? "bin/java.exe" : "bin/java"));
+        } else {
+            return Files.isRegularFile(path);
+        }
+    }
+
+    private void handleEvents(Path watchDir, List<WatchEvent<?>> events, boolean valid) {
+        var targets = mWatchDirTargets.get(watchDir);
+        if (targets == null) {
+            return;
+        }
+
+        var recheck = new HashSet<Target>();
+        var rewatch = new HashSet<Target>();
+        if (!valid) {
+            recheck.addAll(targets);
+            rewatch.addAll(targets);
+        } else {
+            for (var event : events) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    recheck.addAll(targets);
+                    break;
+                }
+                var name = ((Path) event.context()).getFileName();
+                for (var target : targets) {
+                    if (target.path().startsWith(watchDir.resolve(name))) {
+                        recheck.add(target);
+                        if (event.kind() != StandardWatchEventKinds.ENTRY_MODIFY && !watchDir.equals(mTargetWatchDirs.get(target).getFirst())) {
+                            rewatch.add(target);
+                        }
+                    }
+                }
+            }
+        }
+
+        var changedTaskIds = new HashSet<String>();
+        for (var target : recheck) {
+            if (rewatch.contains(target)) {
+                //nvm - the watched directory is gone, moved or replaced, drop its registration so watch() registers anew
+                unwatch(target);
+            }
+            watch(target);
+            var state = check(target);
+            if (!Boolean.valueOf(state).equals(mTargetStates.put(target, state))) {
+                changedTaskIds.addAll(mTargetTasks.getOrDefault(target, new HashSet<>()));
+            }
+        }
+        changedTaskIds.forEach(this::updateValidity);
+    }
+
+    private void publish() {
+        if (TaskManager.getInstance().isGui() && mPublishScheduled.compareAndSet(false, true)) {
+            FxHelper.runLater(() -> {
+                mPublishScheduled.set(false);
+                mInvalidProperty.set(Map.copyOf(mInvalidTasks));
+            });
+        }
+    }
+
+    private void setTargets(String taskId, List<Target> targets) {
+        var oldTargets = mTaskTargets.remove(taskId);
+        if (oldTargets != null) {
+            for (var target : oldTargets) {
+                var taskIds = mTargetTasks.get(target);
+                taskIds.remove(taskId);
+                if (taskIds.isEmpty()) {
+                    mTargetTasks.remove(target);
+                    mTargetStates.remove(target);
+                    unwatch(target);
+                }
+            }
+        }
+
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        mTaskTargets.put(taskId, targets);
+        for (var target : targets) {
+            mTargetTasks.computeIfAbsent(target, k -> new HashSet<>()).add(taskId);
+            if (!mTargetStates.containsKey(target)) {
+                watch(target);
+                mTargetStates.put(target, check(target));
+            }
+        }
+    }
+
+    private void unwatch(Target target) {
+        var watchDirs = mTargetWatchDirs.remove(target);
+        if (watchDirs == null) {
+            return;
+        }
+
+        for (var watchDir : watchDirs) {
+            var targets = mWatchDirTargets.get(watchDir);
+            targets.remove(target);
+            if (targets.isEmpty()) {
+                mWatchDirTargets.remove(watchDir);
+                var watchKey = mWatchKeys.remove(watchDir);
+                if (watchKey != null) {
+                    watchKey.cancel();
+                }
+            }
+        }
+    }
+
+    private void updateValidity(String taskId) {
+        boolean execPath = true;
+        boolean javaDir = true;
+        for (var target : mTaskTargets.getOrDefault(taskId, List.of())) {
+            if (!mTargetStates.getOrDefault(target, true)) {
+                if (target.directory()) {
+                    javaDir = false;
+                } else {
+                    execPath = false;
+                }
+            }
+        }
+
+        var validity = new Validity(execPath, javaDir);
+        var old = validity.isValid() ? mInvalidTasks.remove(taskId) : mInvalidTasks.put(taskId, validity);
+        if (!validity.equals(old == null ? new Validity(true, true) : old)) {
+            publish();
+        }
+    }
+
+    /**
+     * Watches the target through the nearest existing ancestor of its parent.
+     */
+    private void watch(Target target) {
+        //nvm - loop since a deeper directory created before the registration raises no event
+        while (true) {
+            var watchDir = target.path().getParent();
+            while (watchDir != null && !Files.isDirectory(watchDir)) {
+                watchDir = watchDir.getParent();
+            }
+
+            var oldWatchDirs = mTargetWatchDirs.get(target);
+            if (watchDir == null || oldWatchDirs != null && watchDir.equals(oldWatchDirs.getFirst())) {
+                return;
+            }
+            unwatch(target);
+
+            //nvm - the parent as well, moving the directory away invalidates no key
+            var watchDirs = new ArrayList<Path>(2);
+            for (var dir = watchDir; dir != null && watchDirs.size() < 2; dir = dir.getParent()) {
+                try {
+                    if (!mWatchKeys.containsKey(dir)) {
+                        mWatchKeys.put(dir, dir.register(watchService(),
+                                StandardWatchEventKinds.ENTRY_CREATE,
+                                StandardWatchEventKinds.ENTRY_DELETE,
+                                StandardWatchEventKinds.ENTRY_MODIFY
+                        ));
+                    }
+                    watchDirs.add(dir);
+                    mWatchDirTargets.computeIfAbsent(dir, k -> new HashSet<>()).add(target);
+                } catch (IOException | UnsupportedOperationException ex) {
+                    LOGGER.log(Level.FINE, "Unable to watch " + dir, ex);
+                    break;
+                }
+            }
+
+            if (watchDirs.isEmpty()) {
+                return;
+            }
+            mTargetWatchDirs.put(target, watchDirs);
+        }
+    }
+
+    private WatchService watchService() throws IOException {
+        if (mWatchService == null) {
+            mWatchService = FileSystems.getDefault().newWatchService();
+            var watchService = mWatchService;
+            Thread.ofPlatform().daemon().name("PathValidator-watch").start(() -> {
+                try {
+                    while (true) {
+                        var watchKey = watchService.take();
+                        var watchDir = (Path) watchKey.watchable();
+                        var events = watchKey.pollEvents();
+                        var valid = watchKey.reset();
+                        mExecutorService.execute(() -> handleEvents(watchDir, events, valid));
+                    }
+                } catch (InterruptedException | ClosedWatchServiceException ex) {
+                    //nvm - stopped
+                }
+            });
+        }
+
+        return mWatchService;
+    }
+
+    /**
+     * @param execPath false if the executable is missing
+     * @param javaDir false if the activated Java directory is missing
+     */
+    public record Validity(boolean execPath, boolean javaDir) {
+
+        public boolean isValid() {
+            return execPath && javaDir;
+        }
+    }
+
+    private record Target(Path path, boolean directory) {
+
+    }
+
+    private static class Holder {
+
+        private static final PathValidator INSTANCE = new PathValidator();
+    }
+}
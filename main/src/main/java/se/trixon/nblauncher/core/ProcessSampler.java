@@ -0,0 +1,345 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.openide.util.Exceptions;
+
+/**
+ * Samples CPU time and resident memory of a process and its descendants.
+ * <p>
+ * On Linux the values are read from <code>/proc/&lt;pid&gt;/stat</code>
+ * through channels that are kept open, into a reused buffer, so a sample
+ * does not allocate. The process tree is resolved again every
+ * {@value #TREE_REFRESH_SAMPLES} samples. Elsewhere only the CPU time of
+ * {@link ProcessHandle.Info} is available.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class ProcessSampler implements Closeable {
+
+    private static final long AT_CLKTCK = 17;
+    private static final long CLOCK_TICK_NANOS = TimeUnit.SECONDS.toNanos(1) / readClockTicks();
+    private static final long PAGE_SIZE = readPageSize();
+    private static final boolean PROC = Files.isReadable(Path.of("/proc/self/stat"));
+    private static final int TREE_REFRESH_SAMPLES = 10;
+    private static final ScheduledExecutorService sScheduledExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "ProcessSampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(1024);
+    private FileChannel[] mChannels = new FileChannel[8];
+    private boolean mClosed;
+    private int mCount;
+    private volatile long mCpuLoad;
+    private volatile long mCpuTime;
+    private final ScheduledFuture<?> mFuture;
+    private final Consumer<ProcessSampler> mListener;
+    private volatile long mPeakRss;
+    private long[] mPids = new long[8];
+    private int mProcessCount;
+    private final ProcessHandle mRoot;
+    private volatile long mRss;
+    private long mSampleNanos;
+    private int mSamples;
+    private long mStatCpuTicks;
+    private long mStatRssPages;
+    private long[] mTicks = new long[8];
+
+    /**
+     *
+     * @param root
+     * @param interval the time between samples, in milliseconds
+     * @param listener notified on the sampler thread after each sample, or
+     * null
+     */
+    public ProcessSampler(ProcessHandle root, long interval, Consumer<ProcessSampler> listener) {
+        mRoot = root;
+        mListener = listener;
+        mFuture = sScheduledExecutorService.scheduleWithFixedDelay(() -> {
+            try {
+                sample();
+            } catch (RuntimeException ex) {
+                Exceptions.printStackTrace(ex);
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns USER_HZ, the unit of the CPU times in
+     * <code>/proc/&lt;pid&gt;/stat</code>, from the AT_CLKTCK entry of the
+     * auxiliary vector, or 100 if it can not be determined.
+     */
+    private static long readClockTicks() {
+        try {
+            //nvm - pairs of native words, terminated by AT_NULL
+            var buffer = ByteBuffer.wrap(Files.readAllBytes(Path.of("/proc/self/auxv"))).order(ByteOrder.nativeOrder());
+            while (buffer.remaining() >= 2 * Long.BYTES) {
+                long type = buffer.getLong();
+                long value = buffer.getLong();
+                if (type == 0) {
+                    break;
+                } else if (type == AT_CLKTCK && value > 0) {
+                    return value;
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            //nvm - use the default
+        }
+
+        return 100;
+    }
+
+    private static long readPageSize() {
+        //nvm - KernelPageSize of the first mapping, in kB
+        try (var lines = Files.lines(Path.of("/proc/self/smaps"))) {
+            return lines
+                    .filter(line -> line.startsWith("KernelPageSize:"))
+                    .findFirst()
+                    .map(line -> Long.parseLong(line.replaceAll("\\D", "")) * 1024)
+                    .orElse(4096L);
+        } catch (IOException | RuntimeException ex) {
+            return 4096;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        mFuture.cancel(false);
+        mClosed = true;
+        closeChannels();
+        mCount = 0;
+    }
+
+    /**
+     * Returns the CPU load since the previous sample, in percent of one core.
+     *
+     * @return
+     */
+    public long getCpuLoad() {
+        return mCpuLoad;
+    }
+
+    /**
+     * Returns the CPU time used so far by the process and its descendants, in
+     * nanoseconds. Descendants that both start and end between two tree
+     * refreshes are not seen.
+     *
+     * @return
+     */
+    public long getCpuTime() {
+        return mCpuTime;
+    }
+
+    public long getPeakRss() {
+        return mPeakRss;
+    }
+
+    public int getProcessCount() {
+        return mProcessCount;
+    }
+
+    /**
+     * Returns the resident memory of the latest sample, in bytes, or 0 if
+     * unknown.
+     *
+     * @return
+     */
+    public long getRss() {
+        return mRss;
+    }
+
+    private void closeChannels() {
+        for (int i = 0; i < mCount; i++) {
+            if (mChannels[i] != null) {
+                try {
+                    mChannels[i].close();
+                } catch (IOException ex) {
+                    //nvm
+                }
+                mChannels[i] = null;
+            }
+        }
+    }
+
+    private int indexOf(long pid) {
+        for (int i = 0; i < mCount; i++) {
+            if (mPids[i] == pid) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Reads utime + stime (fields 14 and 15) and rss (field 24) of
+     * <code>/proc/&lt;pid&gt;/stat</code>.
+     */
+    private boolean readStat(FileChannel channel) {
+        if (channel == null) {
+            return false;
+        }
+
+        mBuffer.clear();
+        try {
+            while (mBuffer.hasRemaining() && channel.read(mBuffer, mBuffer.position()) > 0) {
+            }
+        } catch (IOException ex) {
+            //nvm - the process has ended
+            return false;
+        }
+        mBuffer.flip();
+        if (!mBuffer.hasRemaining()) {
+            return false;
+        }
+
+        //nvm - the command name may contain spaces, fields are counted from its closing parenthesis
+        int position = mBuffer.limit() - 1;
+        while (position > 0 && mBuffer.get(position) != ')') {
+            position--;
+        }
+
+        int field = 2;
+        long value = 0;
+        long ticks = 0;
+        for (int i = position + 1; i < mBuffer.limit(); i++) {
+            byte b = mBuffer.get(i);
+            if (b == ' ') {
+                switch (field) {
+                    case 14, 15 ->
+                        ticks += value;
+                    case 24 -> {
+                        mStatCpuTicks = ticks;
+                        mStatRssPages = value;
+                        return true;
+                    }
+                    default -> {
+                    }
+                }
+                field++;
+                value = 0;
+            } else if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+            }
+        }
+
+        return false;
+    }
+
+    private void refreshTree() {
+        var handles = new ArrayList<ProcessHandle>();
+        handles.add(mRoot);
+        mRoot.descendants().forEach(handles::add);
+
+        var pids = new long[Math.max(8, handles.size())];
+        var channels = new FileChannel[pids.length];
+        var ticks = new long[pids.length];
+        int count = 0;
+        for (var handle : handles) {
+            long pid = handle.pid();
+            int existing = indexOf(pid);
+            if (existing >= 0) {
+                channels[count] = mChannels[existing];
+                ticks[count] = mTicks[existing];
+                mChannels[existing] = null;
+            } else {
+                try {
+                    channels[count] = FileChannel.open(Path.of("/proc", Long.toString(pid), "stat"));
+                } catch (IOException ex) {
+                    continue;
+                }
+                ticks[count] = -1;
+            }
+            pids[count++] = pid;
+        }
+
+        closeChannels();
+        mPids = pids;
+        mChannels = channels;
+        mTicks = ticks;
+        mCount = count;
+    }
+
+    private synchronized void sample() {
+        if (mClosed) {
+            return;
+        }
+
+        int samples = mSamples++;
+        long now = System.nanoTime();
+        long cpuDelta = 0;
+        long cpuSeen = 0;
+        long rss = 0;
+        int processCount = 0;
+
+        if (PROC) {
+            if (samples % TREE_REFRESH_SAMPLES == 0) {
+                refreshTree();
+            }
+            for (int i = 0; i < mCount; i++) {
+                if (readStat(mChannels[i])) {
+                    if (mTicks[i] < 0) {
+                        //nvm - first sight, its earlier CPU time does not belong to the load since the previous sample
+                        cpuSeen += mStatCpuTicks * CLOCK_TICK_NANOS;
+                    } else {
+                        cpuDelta += Math.max(0, mStatCpuTicks - mTicks[i]) * CLOCK_TICK_NANOS;
+                    }
+                    mTicks[i] = mStatCpuTicks;
+                    rss += mStatRssPages * PAGE_SIZE;
+                    processCount++;
+                }
+            }
+        } else {
+            var duration = mRoot.info().totalCpuDuration();
+            if (duration.isPresent()) {
+                cpuDelta = Math.max(0, duration.get().toNanos() - mCpuTime);
+                processCount = 1;
+            }
+        }
+
+        if (processCount == 0) {
+            return;
+        }
+
+        //nvm - divide by the measured time, a delayed sample covers more than the interval
+        if (samples > 0 && mSampleNanos > 0 && now > mSampleNanos) {
+            mCpuLoad = cpuDelta * 100 / (now - mSampleNanos);
+        }
+        mSampleNanos = now;
+        mCpuTime += cpuDelta + cpuSeen;
+        mRss = rss;
+        mPeakRss = Math.max(mPeakRss, rss);
+        mProcessCount = processCount;
+
+        if (mListener != null) {
+            mListener.accept(this);
+        }
+    }
+}
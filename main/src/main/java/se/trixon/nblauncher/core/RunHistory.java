@@ -0,0 +1,365 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Append only, binary, history of all runs.
+ * <p>
+ * The file starts with a 16 byte header followed by one 48 byte entry per
+ * run, in order of completion: task id (16), start (8), end (8), exit code
+ * (4), flags (4) and peak RSS (8), big endian. Appending writes one entry at
+ * the end of the file. Queries go through an in memory index, by task, of
+ * entry number and end time, that is extended with the entries appended since
+ * the previous query.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class RunHistory {
+
+    private static final int ENTRY_SIZE = 48;
+    private static final int FLAG_CANCELLED = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int MAGIC = 0x4e424c48;
+    private static final int VERSION = 1;
+    private final ByteBuffer mBuffer = ByteBuffer.allocate(ENTRY_SIZE);
+    private FileChannel mChannel;
+    private long mEntryCount;
+    private final File mFile;
+    private final HashMap<UUID, Index> mIndex = new HashMap<>();
+    private long mIndexedCount;
+
+    public RunHistory(File file) {
+        mFile = file;
+    }
+
+    /**
+     * Returns the id used for a task id in the history.
+     *
+     * @param taskId
+     * @return
+     */
+    public static UUID toUuid(String taskId) {
+        try {
+            return UUID.fromString(taskId);
+        } catch (IllegalArgumentException e) {
+            return UUID.nameUUIDFromBytes(taskId.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public synchronized void append(Entry entry) throws IOException {
+        try {
+            write(entry);
+        } catch (ClosedChannelException ex) {
+            //nvm - closed by an interrupt of the calling thread, reopen and retry once
+            mChannel = null;
+            write(entry);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (mChannel != null) {
+            mChannel.close();
+            mChannel = null;
+        }
+    }
+
+    public File getFile() {
+        return mFile;
+    }
+
+    /**
+     * Returns the entries of the task, or of all tasks if null, that ended
+     * within the range, oldest first.
+     *
+     * @param taskId
+     * @param from inclusive
+     * @param to exclusive
+     * @return
+     * @throws IOException
+     */
+    public synchronized List<Entry> query(String taskId, long from, long to) throws IOException {
+        var entries = new ArrayList<Entry>();
+        if (!open()) {
+            return entries;
+        }
+        updateIndex();
+
+        if (taskId == null) {
+            long first = lowerBound(from);
+            for (long n = first; n < mEntryCount; n++) {
+                var entry = read(n);
+                if (entry.end() >= to) {
+                    break;
+                }
+                entries.add(entry);
+            }
+        } else {
+            var index = mIndex.get(toUuid(taskId));
+            if (index != null) {
+                int first = index.lowerBound(from);
+                for (int i = first; i < index.size && index.ends[i] < to; i++) {
+                    entries.add(read(index.entries[i]));
+                }
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Returns duration statistics of the entries that {@link #query} returns.
+     * Cancelled runs are not included.
+     *
+     * @param taskId
+     * @param from
+     * @param to
+     * @return
+     * @throws IOException
+     */
+    public Statistics statistics(String taskId, long from, long to) throws IOException {
+        var durations = query(taskId, from, to).stream()
+                .filter(entry -> !entry.cancelled())
+                .mapToLong(Entry::getDuration)
+                .sorted()
+                .toArray();
+
+        return Statistics.of(durations);
+    }
+
+    private long lowerBound(long time) throws IOException {
+        long low = 0;
+        long high = mEntryCount;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (readEnd(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    private boolean open() throws IOException {
+        if (mChannel != null && mChannel.isOpen()) {
+            return true;
+        }
+
+        Files.createDirectories(mFile.getParentFile().toPath());
+        mChannel = FileChannel.open(mFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var header = ByteBuffer.allocate(HEADER_SIZE);
+        if (mChannel.size() < HEADER_SIZE) {
+            header.putInt(MAGIC).putInt(VERSION).putInt(ENTRY_SIZE).putInt(0).flip();
+            mChannel.truncate(0);
+            mChannel.write(header, 0);
+        } else {
+            mChannel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != ENTRY_SIZE) {
+                mChannel.close();
+                mChannel = null;
+                throw new IOException("Unknown history file format: " + mFile);
+            }
+        }
+
+        mEntryCount = (mChannel.size() - HEADER_SIZE) / ENTRY_SIZE;
+        //nvm - drop a torn entry, if any
+        mChannel.truncate(HEADER_SIZE + mEntryCount * ENTRY_SIZE);
+
+        return true;
+    }
+
+    private Entry read(long n) throws IOException {
+        var buffer = ByteBuffer.allocate(ENTRY_SIZE);
+        readFully(buffer, HEADER_SIZE + n * ENTRY_SIZE);
+
+        return new Entry(
+                new UUID(buffer.getLong(), buffer.getLong()),
+                buffer.getLong(),
+                buffer.getLong(),
+                buffer.getInt(),
+                (buffer.getInt() & FLAG_CANCELLED) != 0,
+                buffer.getLong()
+        );
+    }
+
+    private long readEnd(long n) throws IOException {
+        var buffer = ByteBuffer.allocate(Long.BYTES);
+        readFully(buffer, HEADER_SIZE + n * ENTRY_SIZE + 24);
+
+        return buffer.getLong();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int count = mChannel.read(buffer, position + buffer.position());
+            if (count < 0) {
+                throw new IOException("Unexpected end of history file: " + mFile);
+            }
+        }
+        buffer.flip();
+    }
+
+    private void updateIndex() throws IOException {
+        if (mIndexedCount == mEntryCount) {
+            return;
+        }
+
+        var buffer = ByteBuffer.allocate(ENTRY_SIZE * 1024);
+        long n = mIndexedCount;
+        while (n < mEntryCount) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), (mEntryCount - n) * ENTRY_SIZE));
+            readFully(buffer, HEADER_SIZE + n * ENTRY_SIZE);
+            while (buffer.remaining() >= ENTRY_SIZE) {
+                int base = buffer.position();
+                var uuid = new UUID(buffer.getLong(base), buffer.getLong(base + 8));
+                mIndex.computeIfAbsent(uuid, k -> new Index()).add(n, buffer.getLong(base + 24));
+                buffer.position(base + ENTRY_SIZE);
+                n++;
+            }
+        }
+        mIndexedCount = n;
+    }
+
+    private void write(Entry entry) throws IOException {
+        open();
+        mBuffer.clear();
+        mBuffer.putLong(entry.taskId().getMostSignificantBits());
+        mBuffer.putLong(entry.taskId().getLeastSignificantBits());
+        mBuffer.putLong(entry.start());
+        mBuffer.putLong(entry.end());
+        mBuffer.putInt(entry.exitCode());
+        mBuffer.putInt(entry.cancelled() ? FLAG_CANCELLED : 0);
+        mBuffer.putLong(entry.peakRss());
+        mBuffer.flip();
+
+        long position = HEADER_SIZE + mEntryCount * ENTRY_SIZE;
+        while (mBuffer.hasRemaining()) {
+            position += mChannel.write(mBuffer, position);
+        }
+        mEntryCount++;
+    }
+
+    /**
+     * One run.
+     *
+     * @param taskId see {@link RunHistory#toUuid(String)}
+     * @param start epoch milliseconds
+     * @param end epoch milliseconds
+     * @param exitCode
+     * @param cancelled
+     * @param peakRss bytes, or 0 if unknown
+     */
+    public record Entry(UUID taskId, long start, long end, int exitCode, boolean cancelled, long peakRss) {
+
+        public long getDuration() {
+            return end - start;
+        }
+    }
+
+    /**
+     * Run durations, in milliseconds.
+     *
+     * @param count
+     * @param min
+     * @param mean
+     * @param median
+     * @param p95
+     * @param max
+     */
+    public record Statistics(int count, long min, long mean, long median, long p95, long max) {
+
+        /**
+         * @param sorted ascending
+         * @return
+         */
+        public static Statistics of(long[] sorted) {
+            if (sorted.length == 0) {
+                return new Statistics(0, 0, 0, 0, 0, 0);
+            }
+
+            long sum = 0;
+            for (var value : sorted) {
+                sum += value;
+            }
+
+            return new Statistics(
+                    sorted.length,
+                    sorted[0],
+                    sum / sorted.length,
+                    percentile(sorted, 50),
+                    percentile(sorted, 95),
+                    sorted[sorted.length - 1]
+            );
+        }
+
+        /**
+         * Nearest rank percentile.
+         */
+        private static long percentile(long[] sorted, int percentile) {
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+
+    private static class Index {
+
+        private long[] ends = new long[8];
+        private long[] entries = new long[8];
+        private int size;
+
+        void add(long entry, long end) {
+            if (size == ends.length) {
+                ends = Arrays.copyOf(ends, size * 2);
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size] = entry;
+            ends[size++] = end;
+        }
+
+        int lowerBound(long time) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ends[mid] < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            return low;
+        }
+    }
+}
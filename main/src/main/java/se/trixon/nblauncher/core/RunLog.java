@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import org.openide.util.Exceptions;
+
+/**
+ * The log of one run, written through a buffered file channel.
+ * <p>
+ * Lines are encoded straight into a direct buffer that is written when full,
+ * so appending a line neither allocates nor waits for the disk in the common
+ * case. If writing fails, the log is closed and the remaining lines are
+ * ignored.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class RunLog implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final File mBaseFile;
+    private final ByteBuffer mByteBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private FileChannel mChannel;
+    private final CharsetEncoder mEncoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private File mFile;
+    private final RunLogManager mManager;
+    private int mSegment;
+    private long mSize;
+
+    RunLog(RunLogManager manager, File baseFile) throws IOException {
+        mManager = manager;
+        mBaseFile = baseFile;
+        openSegment();
+    }
+
+    public synchronized void append(String line) {
+        if (mChannel == null) {
+            return;
+        }
+
+        try {
+            encode(CharBuffer.wrap(line));
+            if (!mByteBuffer.hasRemaining()) {
+                writeBuffer();
+            }
+            mByteBuffer.put((byte) '\n');
+            if (mSize + mByteBuffer.position() >= mManager.getMaxFileSize()) {
+                writeBuffer();
+                closeSegment();
+                mSegment++;
+                openSegment();
+            }
+        } catch (IOException ex) {
+            Exceptions.printStackTrace(ex);
+            close();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (mChannel == null) {
+            return;
+        }
+
+        try {
+            writeBuffer();
+        } catch (IOException ex) {
+            Exceptions.printStackTrace(ex);
+        } finally {
+            closeSegment();
+        }
+    }
+
+    /**
+     * Returns the file of the first segment.
+     *
+     * @return
+     */
+    public File getFile() {
+        return getSegmentFile(0);
+    }
+
+    private void closeSegment() {
+        try {
+            mChannel.close();
+        } catch (IOException ex) {
+            Exceptions.printStackTrace(ex);
+        }
+        mChannel = null;
+        mManager.closed(mFile);
+    }
+
+    private void encode(CharBuffer charBuffer) throws IOException {
+        while (true) {
+            CoderResult result = mEncoder.encode(charBuffer, mByteBuffer, true);
+            if (result.isOverflow()) {
+                writeBuffer();
+            } else {
+                mEncoder.reset();
+                return;
+            }
+        }
+    }
+
+    private File getSegmentFile(int segment) {
+        return new File(mBaseFile.getParentFile(), "%s-%03d%s".formatted(mBaseFile.getName(), segment, RunLogManager.EXT_LOG));
+    }
+
+    private void openSegment() throws IOException {
+        mFile = getSegmentFile(mSegment);
+        mChannel = mManager.openFile(mFile);
+        mSize = mChannel.size();
+    }
+
+    private void writeBuffer() throws IOException {
+        mByteBuffer.flip();
+        while (mByteBuffer.hasRemaining()) {
+            mSize += mChannel.write(mByteBuffer);
+        }
+        mByteBuffer.clear();
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+import org.openide.util.Exceptions;
+
+/**
+ * Keeps the output of each run in log files, one directory per task.
+ * <p>
+ * A run is written to <code>&lt;tag&gt;-000.log</code>, rolling over to
+ * <code>&lt;tag&gt;-001.log</code> and so on when a file reaches the maximum
+ * file size. Logs older than the compress age are gzip compressed, and the
+ * oldest logs are deleted when older than the maximum age or when all logs
+ * together exceed the maximum size. Every run is also listed in the index
+ * file.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class RunLogManager {
+
+    static final String EXT_GZ = ".gz";
+    static final String EXT_LOG = ".log";
+    private static final String TAG_PATTERN = "yyyyMMdd_HHmmss_SSS";
+    private long mCompressAge = TimeUnit.DAYS.toMillis(1);
+    private final File mDirectory;
+    private final File mIndexFile;
+    private final AtomicBoolean mMaintenanceScheduled = new AtomicBoolean(false);
+    private long mMaxAge = TimeUnit.DAYS.toMillis(30);
+    private long mMaxFileSize = 32 * 1024 * 1024;
+    private long mMaxSize = 512 * 1024 * 1024;
+    private final Set<File> mOpenFiles = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService mScheduledExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "RunLogManager");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RunLogManager(File directory, File indexFile) {
+        mDirectory = directory;
+        mIndexFile = indexFile;
+    }
+
+    public long getCompressAge() {
+        return mCompressAge;
+    }
+
+    public File getDirectory() {
+        return mDirectory;
+    }
+
+    public File getIndexFile() {
+        return mIndexFile;
+    }
+
+    public long getMaxAge() {
+        return mMaxAge;
+    }
+
+    public long getMaxFileSize() {
+        return mMaxFileSize;
+    }
+
+    public long getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Returns the log files of the task, newest first.
+     *
+     * @param taskId
+     * @return
+     */
+    public List<File> list(String taskId) {
+        var files = new ArrayList<>(listFiles(new File(mDirectory, taskId)));
+        files.sort(Comparator.comparing(File::getName).reversed());
+
+        return files;
+    }
+
+    /**
+     * Compresses and deletes logs according to the policy.
+     */
+    public synchronized void maintain() {
+        var files = new ArrayList<File>();
+        var taskDirs = mDirectory.listFiles(File::isDirectory);
+        if (taskDirs == null) {
+            return;
+        }
+
+        for (var taskDir : taskDirs) {
+            files.addAll(listFiles(taskDir));
+        }
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < files.size(); i++) {
+            var file = files.get(i);
+            if (file.getName().endsWith(EXT_LOG) && now - file.lastModified() > mCompressAge && !mOpenFiles.contains(file)) {
+                try {
+                    files.set(i, compress(file));
+                } catch (IOException ex) {
+                    Exceptions.printStackTrace(ex);
+                }
+            }
+        }
+
+        files.sort(Comparator.comparingLong(File::lastModified));
+        long totalSize = files.stream().mapToLong(File::length).sum();
+        for (var file : files) {
+            if (totalSize <= mMaxSize && now - file.lastModified() <= mMaxAge) {
+                break;
+            }
+            if (!mOpenFiles.contains(file)) {
+                totalSize -= file.length();
+                file.delete();
+            }
+        }
+
+        //nvm - only empty directories are deleted, openFile() can not create a file in between
+        synchronized (mOpenFiles) {
+            for (var taskDir : taskDirs) {
+                taskDir.delete();
+            }
+        }
+    }
+
+    /**
+     * Creates the log of a new run of the task.
+     *
+     * @param task
+     * @return
+     * @throws IOException
+     */
+    public RunLog open(Task task) throws IOException {
+        var taskDir = new File(mDirectory, task.getId());
+        var date = new Date();
+        var tag = new SimpleDateFormat(TAG_PATTERN).format(date);
+        var runLog = new RunLog(this, new File(taskDir, tag));
+
+        var indexLine = "%s\t%s\t%s\t%s%n".formatted(
+                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(date),
+                task.getId(),
+                mDirectory.toPath().relativize(runLog.getFile().toPath()),
+                task.getName()
+        );
+        Files.createDirectories(mIndexFile.getParentFile().toPath());
+        Files.writeString(mIndexFile.toPath(), indexLine, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        return runLog;
+    }
+
+    public void setCompressAge(long compressAge) {
+        mCompressAge = compressAge;
+    }
+
+    public void setMaxAge(long maxAge) {
+        mMaxAge = maxAge;
+    }
+
+    public void setMaxFileSize(long maxFileSize) {
+        mMaxFileSize = maxFileSize;
+    }
+
+    public void setMaxSize(long maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    void closed(File file) {
+        mOpenFiles.remove(file);
+        requestMaintenance();
+    }
+
+    /**
+     * Opens a log file for appending, creating its task directory if needed.
+     */
+    FileChannel openFile(File file) throws IOException {
+        synchronized (mOpenFiles) {
+            Files.createDirectories(file.getParentFile().toPath());
+            var channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            mOpenFiles.add(file);
+
+            return channel;
+        }
+    }
+
+    /**
+     * Runs {@link #maintain()} in the background, unless already pending.
+     */
+    void requestMaintenance() {
+        if (mMaintenanceScheduled.compareAndSet(false, true)) {
+            mScheduledExecutorService.schedule(() -> {
+                mMaintenanceScheduled.set(false);
+                try {
+                    maintain();
+                } catch (RuntimeException ex) {
+                    Exceptions.printStackTrace(ex);
+                }
+            }, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    private File compress(File file) throws IOException {
+        var gzFile = new File(file.getPath() + EXT_GZ);
+        var tmpFile = new File(gzFile.getPath() + ".tmp");
+        try (var inputStream = new FileInputStream(file); var outputStream = new GZIPOutputStream(new FileOutputStream(tmpFile), 64 * 1024)) {
+            inputStream.transferTo(outputStream);
+        }
+        tmpFile.setLastModified(file.lastModified());
+        Files.move(tmpFile.toPath(), gzFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(file.toPath());
+
+        return gzFile;
+    }
+
+    private List<File> listFiles(File dir) {
+        var files = dir.listFiles((d, name) -> name.endsWith(EXT_LOG) || name.endsWith(EXT_LOG + EXT_GZ));
+
+        return files == null ? List.of() : Arrays.asList(files);
+    }
+}
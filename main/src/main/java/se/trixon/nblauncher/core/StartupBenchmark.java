@@ -0,0 +1,347 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import org.apache.commons.io.FileUtils;
+import org.netbeans.api.progress.ProgressHandle;
+import org.openide.util.Exceptions;
+import org.openide.util.NbBundle;
+import org.openide.windows.IOProvider;
+import se.trixon.almond.nbp.output.OutputHelper;
+import se.trixon.almond.nbp.output.OutputLineMode;
+import se.trixon.almond.util.gson_adapter.FileAdapter;
+
+/**
+ * Launches a task a number of times in sequence and reports how long it
+ * takes to become ready.
+ * <p>
+ * A run is timed from process start until the output matches the ready
+ * pattern, after which the instance is stopped, or until the process exits
+ * if there is no pattern. With a cold cache each run gets a new, empty,
+ * cache directory. Results are appended to
+ * {@link StorageManager#getBenchmarkFile()}, one JSON record per line.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class StartupBenchmark {
+
+    private static final Gson GSON = new GsonBuilder()
+            .setVersion(1.0)
+            .serializeNulls()
+            .registerTypeAdapter(File.class, new FileAdapter())
+            .registerTypeAdapterFactory(TaskAdapter.FACTORY)
+            .create();
+    private final AtomicBoolean mCancelled = new AtomicBoolean(false);
+    private boolean mColdCache;
+    private Pattern mReadyPattern;
+    private long mReadyTimeout = 300_000;
+    private int mRuns = 5;
+    private final Task mTask;
+    private volatile Thread mThread;
+
+    public StartupBenchmark(Task task) {
+        mTask = task;
+    }
+
+    /**
+     * Returns the stored results of the task, oldest first.
+     *
+     * @param taskId
+     * @return
+     * @throws IOException
+     */
+    public static List<Result> load(String taskId) throws IOException {
+        var results = new ArrayList<Result>();
+        var file = StorageManager.getInstance().getBenchmarkFile();
+        if (!file.isFile()) {
+            return results;
+        }
+
+        for (var line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            try {
+                var result = GSON.fromJson(line, Result.class);
+                if (result != null && Objects.equals(result.taskId(), taskId)) {
+                    results.add(result);
+                }
+            } catch (JsonParseException e) {
+                //nvm - skip torn line
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Stops after the current run.
+     *
+     * @return
+     */
+    public boolean cancel() {
+        mCancelled.set(true);
+        var thread = mThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+
+        return true;
+    }
+
+    public Pattern getReadyPattern() {
+        return mReadyPattern;
+    }
+
+    public long getReadyTimeout() {
+        return mReadyTimeout;
+    }
+
+    public int getRuns() {
+        return mRuns;
+    }
+
+    public Task getTask() {
+        return mTask;
+    }
+
+    public boolean isColdCache() {
+        return mColdCache;
+    }
+
+    public void setColdCache(boolean coldCache) {
+        mColdCache = coldCache;
+    }
+
+    /**
+     * @param readyPattern the output line that marks the instance as ready,
+     * or null to time until the process exits
+     */
+    public void setReadyPattern(Pattern readyPattern) {
+        mReadyPattern = readyPattern;
+    }
+
+    /**
+     * Sets the time, in milliseconds, after which a run that has not become
+     * ready is stopped and counted as failed.
+     *
+     * @param readyTimeout
+     */
+    public void setReadyTimeout(long readyTimeout) {
+        mReadyTimeout = readyTimeout;
+    }
+
+    public void setRuns(int runs) {
+        mRuns = Math.max(1, runs);
+    }
+
+    public void start() {
+        var progressHandle = ProgressHandle.createHandle(NbBundle.getMessage(StartupBenchmark.class, "benchmark", mTask.getName()), this::cancel);
+        progressHandle.start(mRuns);
+        mThread = Thread.ofVirtual().name("StartupBenchmark").start(() -> {
+            try {
+                benchmark(progressHandle);
+            } finally {
+                progressHandle.finish();
+            }
+        });
+    }
+
+    private void append(Result result) throws IOException {
+        var file = StorageManager.getInstance().getBenchmarkFile();
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.writeString(file.toPath(), GSON.toJson(result) + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private void benchmark(ProgressHandle progressHandle) {
+        var title = NbBundle.getMessage(StartupBenchmark.class, "benchmark", mTask.getName());
+        var inputOutput = IOProvider.getDefault().getIO(title, false);
+        inputOutput.select();
+        var outputHelper = new OutputHelper(title, inputOutput, false);
+        outputHelper.reset();
+        outputHelper.start();
+
+        var durations = new ArrayList<Long>();
+        for (int i = 1; i <= mRuns && !mCancelled.get(); i++) {
+            long nanos;
+            try {
+                nanos = run();
+            } catch (InterruptedException ex) {
+                break;
+            } catch (IOException | IllegalStateException ex) {
+                outputHelper.println(OutputLineMode.ERROR, ex.getMessage());
+                break;
+            }
+
+            if (nanos < 0) {
+                outputHelper.println(OutputLineMode.WARNING, NbBundle.getMessage(StartupBenchmark.class, "benchmarkRunFailed", i));
+            } else {
+                long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+                durations.add(millis);
+                outputHelper.println(OutputLineMode.INFO, NbBundle.getMessage(StartupBenchmark.class, "benchmarkRun", i, millis));
+            }
+            progressHandle.progress(i);
+        }
+
+        if (durations.isEmpty()) {
+            return;
+        }
+
+        var result = Result.of(mTask, mColdCache, mReadyPattern, durations.stream().mapToLong(Long::longValue).toArray());
+        outputHelper.println(OutputLineMode.OK, NbBundle.getMessage(StartupBenchmark.class, "benchmarkResult",
+                result.durations().length,
+                result.min(),
+                result.median(),
+                result.p95(),
+                result.max(),
+                result.stdDev()
+        ));
+
+        try {
+            var previous = load(mTask.getId());
+            if (!previous.isEmpty()) {
+                var last = previous.getLast();
+                outputHelper.println(OutputLineMode.INFO, NbBundle.getMessage(StartupBenchmark.class, "benchmarkCompare",
+                        result.median() - last.median(),
+                        result.p95() - last.p95(),
+                        last.getDateAsString()
+                ));
+            }
+            append(result);
+        } catch (IOException ex) {
+            Exceptions.printStackTrace(ex);
+        }
+    }
+
+    /**
+     * Launches, and waits for, one instance.
+     *
+     * @return the time until ready, in nanoseconds, or -1 if it failed
+     */
+    private long run() throws InterruptedException, IOException {
+        var task = mTask;
+        File cacheDir = null;
+        if (mColdCache) {
+            cacheDir = Files.createTempDirectory("nblauncher-cache").toFile();
+            task = GSON.fromJson(GSON.toJson(mTask), Task.class);
+            task.setCacheDir(cacheDir);
+            task.setCacheDirActivated(true);
+        }
+
+        var executor = new Executor(task);
+        executor.setPersistent(false);
+        executor.setReadyPattern(mReadyPattern);
+        if (ExecutorManager.getInstance().start(executor) == null) {
+            FileUtils.deleteQuietly(cacheDir);
+            throw new IllegalStateException(NbBundle.getMessage(StartupBenchmark.class, "benchmarkRunning", mTask.getName()));
+        }
+
+        try {
+            if (mReadyPattern != null) {
+                executor.getReadyFuture().get(mReadyTimeout, TimeUnit.MILLISECONDS);
+                return executor.getReadyNanos();
+            } else {
+                int exitCode = executor.getEndedFuture().get(mReadyTimeout, TimeUnit.MILLISECONDS);
+                return exitCode == 0 ? executor.getRunNanos() : -1;
+            }
+        } catch (ExecutionException | TimeoutException ex) {
+            return -1;
+        } finally {
+            executor.cancel();
+            try {
+                executor.getEndedFuture().get();
+            } catch (ExecutionException ex) {
+                //nvm
+            } finally {
+                FileUtils.deleteQuietly(cacheDir);
+            }
+        }
+    }
+
+    /**
+     * The outcome of one benchmark. Times are in milliseconds.
+     *
+     * @param date epoch milliseconds
+     * @param taskId
+     * @param taskName
+     * @param command the command line, which identifies the build
+     * @param coldCache
+     * @param readyPattern null if timed until exit
+     * @param durations of the successful runs, in run order
+     * @param min
+     * @param median
+     * @param p95
+     * @param max
+     * @param mean
+     * @param stdDev the population standard deviation
+     */
+    public record Result(long date, String taskId, String taskName, String command, boolean coldCache, String readyPattern,
+            long[] durations, long min, long median, long p95, long max, long mean, long stdDev) {
+
+        public static Result of(Task task, boolean coldCache, Pattern readyPattern, long[] durations) {
+            var sorted = durations.clone();
+            Arrays.sort(sorted);
+            var statistics = RunHistory.Statistics.of(sorted);
+            double sum = 0;
+            for (var duration : durations) {
+                sum += Math.pow(duration - statistics.mean(), 2);
+            }
+
+            return new Result(
+                    System.currentTimeMillis(),
+                    task.getId(),
+                    task.getName(),
+                    task.getCommandAsString(),
+                    coldCache,
+                    readyPattern == null ? null : readyPattern.pattern(),
+                    durations,
+                    statistics.min(),
+                    statistics.median(),
+                    statistics.p95(),
+                    statistics.max(),
+                    statistics.mean(),
+                    Math.round(Math.sqrt(sum / durations.length))
+            );
+        }
+
+        public String getDateAsString() {
+            var ldt = LocalDateTime.ofInstant(Instant.ofEpochMilli(date), ZoneId.systemDefault());
+
+            return ldt.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH.mm.ss"));
+        }
+    }
+}
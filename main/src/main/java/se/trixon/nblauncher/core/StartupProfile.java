@@ -0,0 +1,213 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Collects the startup timings that a NetBeans platform application prints
+ * with <code>-J-Dorg.netbeans.log.startup=print</code>.
+ * <p>
+ * Each timing line has the form <code>@&lt;ms&gt; - &lt;message&gt;
+ * dT=&lt;ms&gt;</code>. A message that ends with <code>started</code> opens a
+ * phase and one that ends with <code>end</code> closes it. Any other message
+ * is a step, and the time since the previous line is charged to the module
+ * it names, if any.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class StartupProfile {
+
+    private static final Pattern MODULE_PATTERN = Pattern.compile("\\b([a-z][a-z0-9_]*(?:\\.[a-zA-Z0-9_]+){2,})\\b");
+    private static final String SUFFIX_END = " end";
+    private static final String SUFFIX_STARTED = " started";
+    private static final ScheduledExecutorService sScheduledExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "StartupProfile");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long mLastTime;
+    private final HashMap<String, Long> mModules = new HashMap<>();
+    private final Consumer<StartupProfile> mOnSettled;
+    private final ArrayDeque<OpenPhase> mOpenPhases = new ArrayDeque<>();
+    private final HashMap<String, Long> mPhases = new HashMap<>();
+    private final long mQuietPeriod;
+    private ScheduledFuture<?> mSettledFuture;
+    private long mTotal;
+
+    public StartupProfile() {
+        this(null, 0);
+    }
+
+    /**
+     *
+     * @param onSettled notified when no timing line has been read for the
+     * quiet period, after one or more has, or null
+     * @param quietPeriod in milliseconds
+     */
+    public StartupProfile(Consumer<StartupProfile> onSettled, long quietPeriod) {
+        mOnSettled = onSettled;
+        mQuietPeriod = quietPeriod;
+    }
+
+    /**
+     * Parses a line of output, ignoring it if it is not a timing line.
+     *
+     * @param line
+     * @return true if it was a timing line
+     */
+    public boolean accept(String line) {
+        if (line.length() < 2 || line.charAt(0) != '@' || !Character.isDigit(line.charAt(1))) {
+            return false;
+        }
+
+        int separator = line.indexOf(" - ");
+        if (separator < 0) {
+            return false;
+        }
+
+        long time;
+        try {
+            time = Long.parseLong(line, 1, separator, 10);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        var message = line.substring(separator + 3).strip();
+        long dT = -1;
+        int dTIndex = message.lastIndexOf(" dT=");
+        if (dTIndex >= 0) {
+            try {
+                dT = Long.parseLong(message.substring(dTIndex + 4).strip());
+                message = message.substring(0, dTIndex).strip();
+            } catch (NumberFormatException e) {
+                //nvm - part of the message
+            }
+        }
+
+        synchronized (this) {
+            if (message.endsWith(SUFFIX_STARTED)) {
+                mOpenPhases.push(new OpenPhase(message.substring(0, message.length() - SUFFIX_STARTED.length()), time));
+            } else if (message.endsWith(SUFFIX_END)) {
+                var phase = message.substring(0, message.length() - SUFFIX_END.length());
+                long start = popPhase(phase);
+                long duration = dT >= 0 ? dT : start >= 0 ? time - start : 0;
+                mPhases.merge(phase, duration, Long::sum);
+            } else {
+                var matcher = MODULE_PATTERN.matcher(message);
+                if (matcher.find() && mLastTime > 0) {
+                    mModules.merge(matcher.group(1), Math.max(0, time - mLastTime), Long::sum);
+                }
+            }
+            mLastTime = time;
+            mTotal = Math.max(mTotal, time);
+
+            if (mOnSettled != null) {
+                if (mSettledFuture != null) {
+                    mSettledFuture.cancel(false);
+                }
+                mSettledFuture = sScheduledExecutorService.schedule(() -> mOnSettled.accept(this), mQuietPeriod, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Stops waiting for the quiet period, and notifies right away if a
+     * notification was pending.
+     */
+    public void close() {
+        boolean pending;
+        synchronized (this) {
+            pending = mSettledFuture != null && mSettledFuture.cancel(false);
+            mSettledFuture = null;
+        }
+
+        if (pending) {
+            mOnSettled.accept(this);
+        }
+    }
+
+    /**
+     * Returns the time charged to each module, most expensive first.
+     *
+     * @return
+     */
+    public synchronized List<Map.Entry<String, Long>> getModules() {
+        return sortByCost(mModules);
+    }
+
+    /**
+     * Returns the total time of each phase, most expensive first. Nested
+     * phases are included in the time of their parents too.
+     *
+     * @return
+     */
+    public synchronized List<Map.Entry<String, Long>> getPhases() {
+        return sortByCost(mPhases);
+    }
+
+    /**
+     * Returns the time of the latest timing line, in milliseconds since the
+     * application started.
+     *
+     * @return
+     */
+    public synchronized long getTotal() {
+        return mTotal;
+    }
+
+    public synchronized boolean isEmpty() {
+        return mPhases.isEmpty() && mModules.isEmpty();
+    }
+
+    private long popPhase(String phase) {
+        for (var iterator = mOpenPhases.iterator(); iterator.hasNext();) {
+            var openPhase = iterator.next();
+            if (openPhase.name().equals(phase)) {
+                iterator.remove();
+                return openPhase.start();
+            }
+        }
+
+        return -1;
+    }
+
+    private List<Map.Entry<String, Long>> sortByCost(Map<String, Long> map) {
+        var entries = new ArrayList<Map.Entry<String, Long>>(map.size());
+        for (var entry : map.entrySet()) {
+            entries.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        return entries;
+    }
+
+    private record OpenPhase(String name, long start) {
+
+    }
+}
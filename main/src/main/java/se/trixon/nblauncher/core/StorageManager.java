@@ -18,17 +18,41 @@ package se.trixon.nblauncher.core;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
-import javafx.collections.ObservableMap;
-import org.apache.commons.io.FileUtils;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.collections.MapChangeListener;
+import org.openide.awt.StatusDisplayer;
 import org.openide.modules.Places;
 import org.openide.util.Exceptions;
+import org.openide.util.NbBundle;
+import se.trixon.almond.nbp.dialogs.NbMessage;
 import se.trixon.almond.util.fx.FxHelper;
 import se.trixon.almond.util.gson_adapter.FileAdapter;
 
@@ -43,25 +67,70 @@ public class StorageManager {
             .serializeNulls()
             .setPrettyPrinting()
             .registerTypeAdapter(File.class, new FileAdapter())
+            .registerTypeAdapterFactory(TaskAdapter.FACTORY)
+            .registerTypeAdapterFactory(StorageAdapter.FACTORY)
             .create();
 
+    private static final long JOURNAL_COMPACT_THRESHOLD = 256 * 1024;
+    private static final int LOAD_BATCH_SIZE_MAX = 4096;
+    private static final int LOAD_BATCH_SIZE_MIN = 64;
+    private static final Logger LOGGER = Logger.getLogger(StorageManager.class.getName());
+    private final AtomicBoolean mAsyncLoading = new AtomicBoolean(false);
+    private final BackupManager mBackupManager;
+    private final File mBenchmarkFile;
+    private volatile boolean mCompactOutput;
+    private volatile long mFileHash;
+    private final HashMap<String, Long> mFileHashes = new HashMap<>();
+    private FileWatcher mFileWatcher;
     private final File mHistoryFile;
+    private final TaskJournal mJournal;
+    private final HashMap<String, Long> mKnownHashes = new HashMap<>();
+    private int mLoadBatchSize;
+    private volatile boolean mLoading;
     private final File mLogFile;
-    private Storage mStorage = new Storage();
+    private final LinkedHashMap<String, Task> mPendingTasks = new LinkedHashMap<>();
+    private final LinkedHashMap<String, String> mQueuedChanges = new LinkedHashMap<>();
+    private final RunHistory mRunHistory;
+    private final RunLogManager mRunLogManager;
+    private volatile Storage mStorage = new Storage();
     private final TaskManager mTaskManager = TaskManager.getInstance();
-    private final File mTasksBackupFile;
     private final File mTasksFile;
     private final File mUserDirectory;
+    private final UserDirProvisioner mUserDirProvisioner;
+    private volatile boolean mWatching;
+    private final StorageWriter mWriter;
 
     public static StorageManager getInstance() {
         return Holder.INSTANCE;
     }
 
+    /**
+     * Queues the changed tasks for writing and returns without waiting for the
+     * disk.
+     */
     public static void save() {
+        StorageManager.getInstance().requestSave();
+    }
+
+    /**
+     * Marks the task as changed, refreshes its list entry and saves it.
+     * <p>
+     * Use this after modifying a task in place, since that is not detected by
+     * the task map.
+     *
+     * @param task
+     */
+    public static void save(Task task) {
+        var storageManager = StorageManager.getInstance();
+        synchronized (storageManager.mPendingTasks) {
+            storageManager.mPendingTasks.put(task.getId(), task);
+        }
+        storageManager.requestSave();
+
         try {
-            StorageManager.getInstance().saveToFile();
-        } catch (IOException ex) {
-            Exceptions.printStackTrace(ex);
+            FxHelper.runLater(() -> storageManager.mTaskManager.refresh(task));
+        } catch (IllegalStateException e) {
+            //nvm - probably started from console w/o fx
         }
     }
 
@@ -69,9 +138,44 @@ public class StorageManager {
         mUserDirectory = Places.getUserDirectory();
 
         mTasksFile = new File(mUserDirectory, "tasks.json");
-        mTasksBackupFile = new File(mUserDirectory, "tasks.bak");
         mHistoryFile = new File(mUserDirectory, "var/history");
         mLogFile = new File(mUserDirectory, "var/filebydate.log");
+        mBenchmarkFile = new File(mUserDirectory, "var/benchmarks");
+        mJournal = new TaskJournal(new File(mUserDirectory, "tasks.journal"));
+        mBackupManager = new BackupManager(new File(mUserDirectory, "backups"));
+        mRunHistory = new RunHistory(mHistoryFile);
+        mUserDirProvisioner = new UserDirProvisioner(new File(mUserDirectory, "templates"));
+        mRunLogManager = new RunLogManager(new File(mUserDirectory, "var/logs"), mLogFile);
+        mWriter = new StorageWriter(this::write);
+
+        mTaskManager.getIdToItem().addListener((MapChangeListener.Change<? extends String, ? extends Task> change) -> {
+            if (!mLoading) {
+                synchronized (mPendingTasks) {
+                    mPendingTasks.put(change.getKey(), change.wasAdded() ? change.getValueAdded() : null);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes all queued changes and waits for the write to complete.
+     *
+     * @param timeout
+     * @param unit
+     * @return false if the timeout elapsed before the write completed
+     * @throws InterruptedException
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        queuePendingChanges();
+        return mWriter.flush(timeout, unit);
+    }
+
+    public BackupManager getBackupManager() {
+        return mBackupManager;
+    }
+
+    public File getBenchmarkFile() {
+        return mBenchmarkFile;
     }
 
     public int getFileFormatVersion() {
@@ -82,10 +186,22 @@ public class StorageManager {
         return mHistoryFile;
     }
 
+    public File getJournalFile() {
+        return mJournal.getFile();
+    }
+
     public File getLogFile() {
         return mLogFile;
     }
 
+    public RunHistory getRunHistory() {
+        return mRunHistory;
+    }
+
+    public RunLogManager getRunLogManager() {
+        return mRunLogManager;
+    }
+
     public TaskManager getTaskManager() {
         return mTaskManager;
     }
@@ -98,30 +214,101 @@ public class StorageManager {
         return mUserDirectory;
     }
 
-    public void load() throws IOException {
-        if (mTasksFile.exists()) {
-            mStorage = Storage.open(mTasksFile);
+    public UserDirProvisioner getUserDirProvisioner() {
+        return mUserDirProvisioner;
+    }
+
+    public StorageWriter getWriter() {
+        return mWriter;
+    }
 
-            var taskItems = mTaskManager.getIdToItem();
-            taskItems.clear();
-            taskItems.putAll(mStorage.getTasks());
-        } else {
-            mStorage = new Storage();
+    /**
+     * Returns whether tasks.json is written without indentation.
+     *
+     * @return
+     */
+    public boolean isCompactOutput() {
+        return mCompactOutput;
+    }
+
+    /**
+     * Reads the stored tasks on a background thread and publishes them to the
+     * task manager in batches, as they are decoded.
+     * <p>
+     * Must be called after the FX toolkit has been started.
+     */
+    public void loadAsync() {
+        if (!mAsyncLoading.compareAndSet(false, true)) {
+            return;
         }
+
+        mLoadBatchSize = LOAD_BATCH_SIZE_MIN;
+        new Thread(() -> {
+            Reconciliation reconciliation = null;
+            try {
+                var batch = new ArrayList<Task>();
+                Storage storage;
+                synchronized (mJournal) {
+                    if (mTasksFile.exists()) {
+                        storage = Storage.open(mTasksFile, task -> {
+                            batch.add(task);
+                            if (batch.size() >= mLoadBatchSize) {
+                                publish(new ArrayList<>(batch));
+                                batch.clear();
+                                mLoadBatchSize = Math.min(mLoadBatchSize * 2, LOAD_BATCH_SIZE_MAX);
+                            }
+                        });
+                    } else {
+                        storage = new Storage();
+                    }
+                    publish(batch);
+                    mJournal.replay(storage.getTasks());
+                }
+                migrateLegacyBackup(storage.getTasks());
+                reconciliation = reconcile(storage);
+            } catch (IOException | RuntimeException ex) {
+                //nvm - report any failure, the loading flag below has to be cleared
+                Exceptions.printStackTrace(ex);
+            }
+
+            var finalReconciliation = reconciliation;
+            FxHelper.runLater(() -> {
+                if (finalReconciliation != null) {
+                    apply(finalReconciliation);
+                }
+                mTaskManager.setLoading(false);
+                mAsyncLoading.set(false);
+                watch();
+            });
+        }, "TaskLoader").start();
     }
 
-    private void saveToFile() throws IOException {
-        mStorage.setTasks(mTaskManager.getIdToItem());
-        String json = mStorage.save(mTasksFile);
-        String tag = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-        FileUtils.writeStringToFile(mTasksBackupFile, String.format("%s=%s\n", tag, json), Charset.defaultCharset(), true);
+    /**
+     * Replaces the stored tasks with the ones from the given backup point and
+     * reloads them.
+     *
+     * @param point
+     * @throws IOException
+     */
+    public void restore(BackupManager.Point point) throws IOException {
+        var tasks = mBackupManager.materialize(point);
+        synchronized (mPendingTasks) {
+            mPendingTasks.clear();
+            mQueuedChanges.clear();
+        }
+
+        Storage storage;
+        synchronized (mJournal) {
+            storage = new Storage();
+            storage.getTasks().putAll(tasks);
+            writeSnapshot(storage);
+        }
 
+        var reconciliation = reconcile(storage);
         try {
             FxHelper.runLater(() -> {
-                try {
-                    load();
-                } catch (IOException ex) {
-                    Exceptions.printStackTrace(ex);
+                if (!hasPendingChanges()) {
+                    apply(reconciliation);
                 }
             });
         } catch (IllegalStateException e) {
@@ -129,12 +316,374 @@ public class StorageManager {
         }
     }
 
+    public void setCompactOutput(boolean compactOutput) {
+        mCompactOutput = compactOutput;
+    }
+
+    /**
+     * Starts picking up external edits of tasks.json.
+     * <p>
+     * Changed tasks are merged into the task manager by id. A task changed
+     * both in the file and here, since the file was last read or written,
+     * keeps the version from here and is reported as a conflict.
+     */
+    public synchronized void watch() {
+        if (mFileWatcher != null) {
+            return;
+        }
+
+        mFileWatcher = new FileWatcher(mTasksFile, this::reload);
+        try {
+            mFileWatcher.start();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Unable to watch " + mTasksFile, ex);
+        }
+    }
+
+    private void apply(Reconciliation reconciliation) {
+        mStorage = reconciliation.storage();
+        synchronized (mPendingTasks) {
+            mKnownHashes.clear();
+            mKnownHashes.putAll(reconciliation.hashes());
+        }
+
+        if (reconciliation.puts().isEmpty() && reconciliation.removes().isEmpty()) {
+            return;
+        }
+
+        mLoading = true;
+        try {
+            mTaskManager.update(reconciliation.puts(), reconciliation.removes());
+        } finally {
+            mLoading = false;
+        }
+    }
+
+    private void compact() throws IOException {
+        synchronized (mJournal) {
+            if (mWatching && mTasksFile.exists() && hash(Files.readAllBytes(mTasksFile.toPath())) != mFileHash) {
+                //nvm - edited externally, the reload will merge the journal
+                return;
+            }
+            var storage = mTasksFile.exists() ? Storage.open(mTasksFile) : new Storage();
+            mJournal.replay(storage.getTasks());
+            writeSnapshot(storage);
+            mBackupManager.backup(storage.getTasks());
+        }
+    }
+
+    private boolean hasPendingChanges() {
+        synchronized (mPendingTasks) {
+            return !mPendingTasks.isEmpty() || !mQueuedChanges.isEmpty();
+        }
+    }
+
+    /**
+     * Returns the leading 64 bits of the SHA-256 digest.
+     */
+    private long hash(byte[] bytes) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(bytes)).getLong();
+        } catch (NoSuchAlgorithmException ex) {
+            //nvm - required on every Java platform
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private long hash(String json) {
+        return hash(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private HashMap<String, Long> hashes(Map<String, Task> tasks) {
+        var hashes = new HashMap<String, Long>();
+        for (var entry : tasks.entrySet()) {
+            hashes.put(entry.getKey(), hash(TaskJournal.toJson(entry.getValue())));
+        }
+
+        return hashes;
+    }
+
+    /**
+     * Replaces the unbounded tasks.bak of earlier versions with a first full
+     * backup point, unless there already are backup points, and deletes it.
+     * Its latest record is the content of tasks.json.
+     */
+    private void migrateLegacyBackup(Map<String, Task> tasks) {
+        var legacyFile = new File(mUserDirectory, "tasks.bak");
+        if (!legacyFile.exists()) {
+            return;
+        }
+
+        try {
+            if (mBackupManager.list().isEmpty()) {
+                mBackupManager.backup(tasks);
+            }
+            Files.delete(legacyFile.toPath());
+        } catch (IOException ex) {
+            Exceptions.printStackTrace(ex);
+        }
+    }
+
+    private void publish(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        synchronized (mPendingTasks) {
+            for (var task : tasks) {
+                mKnownHashes.put(task.getId(), hash(TaskJournal.toJson(task)));
+            }
+        }
+
+        FxHelper.runLater(() -> {
+            mLoading = true;
+            try {
+                mTaskManager.update(tasks, List.of());
+            } finally {
+                mLoading = false;
+            }
+        });
+    }
+
+    private void queuePendingChanges() {
+        synchronized (mPendingTasks) {
+            for (var entry : mPendingTasks.entrySet()) {
+                var id = entry.getKey();
+                var task = entry.getValue();
+                if (task == null) {
+                    mQueuedChanges.put(id, null);
+                    mKnownHashes.remove(id);
+                } else {
+                    var json = TaskJournal.toJson(task);
+                    mQueuedChanges.put(id, json);
+                    mKnownHashes.put(id, hash(json));
+                }
+            }
+            mPendingTasks.clear();
+        }
+    }
+
+    private Reconciliation reconcile(Storage storage) {
+        HashMap<String, Long> knownHashes;
+        synchronized (mPendingTasks) {
+            knownHashes = new HashMap<>(mKnownHashes);
+        }
+
+        var hashes = new HashMap<String, Long>();
+        var puts = new ArrayList<Task>();
+        for (var entry : storage.getTasks().entrySet()) {
+            long hash = hash(TaskJournal.toJson(entry.getValue()));
+            hashes.put(entry.getKey(), hash);
+            var knownHash = knownHashes.get(entry.getKey());
+            if (knownHash == null || knownHash != hash) {
+                puts.add(entry.getValue());
+            }
+        }
+
+        var removes = new ArrayList<String>();
+        for (var id : knownHashes.keySet()) {
+            if (!hashes.containsKey(id)) {
+                removes.add(id);
+            }
+        }
+
+        return new Reconciliation(storage, puts, removes, hashes);
+    }
+
+    /**
+     * Merges an external edit of tasks.json, compared to the file as it was
+     * last read or written.
+     */
+    private void reload() {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(mTasksFile.toPath());
+        } catch (NoSuchFileException ex) {
+            return;
+        } catch (IOException ex) {
+            Exceptions.printStackTrace(ex);
+            return;
+        }
+
+        long fileHash = hash(bytes);
+        var puts = new ArrayList<Task>();
+        var removes = new ArrayList<String>();
+        var conflicts = new ArrayList<String>();
+
+        synchronized (mJournal) {
+            if (mWatching && fileHash == mFileHash) {
+                return;
+            }
+
+            Storage storage;
+            try {
+                storage = Storage.open(mTasksFile);
+            } catch (IOException | JsonSyntaxException ex) {
+                //nvm - probably still being written, the next event retries
+                LOGGER.log(Level.INFO, "Unable to reload " + mTasksFile, ex);
+                return;
+            }
+
+            var fileHashes = hashes(storage.getTasks());
+            if (!mWatching) {
+                mFileHash = fileHash;
+                mFileHashes.clear();
+                mFileHashes.putAll(fileHashes);
+                mWatching = true;
+                return;
+            }
+
+            queuePendingChanges();
+            write();
+            HashMap<String, Long> knownHashes;
+            synchronized (mPendingTasks) {
+                knownHashes = new HashMap<>(mKnownHashes);
+            }
+
+            var localTasks = new HashMap<>(storage.getTasks());
+            boolean journaled;
+            try {
+                journaled = mJournal.replay(localTasks) > 0;
+            } catch (IOException ex) {
+                Exceptions.printStackTrace(ex);
+                return;
+            }
+
+            var ids = new HashSet<String>(mFileHashes.keySet());
+            ids.addAll(fileHashes.keySet());
+            ids.addAll(knownHashes.keySet());
+            for (var id : ids) {
+                var baseHash = mFileHashes.get(id);
+                var fileTaskHash = fileHashes.get(id);
+                var knownHash = knownHashes.get(id);
+                boolean external = !Objects.equals(fileTaskHash, baseHash);
+
+                if (!Objects.equals(knownHash, baseHash)) {
+                    var localTask = localTasks.get(id);
+                    if (localTask == null) {
+                        storage.getTasks().remove(id);
+                    } else {
+                        storage.getTasks().put(id, localTask);
+                    }
+                    if (external && !Objects.equals(fileTaskHash, knownHash)) {
+                        conflicts.add(id);
+                    }
+                } else if (external) {
+                    if (fileTaskHash == null) {
+                        removes.add(id);
+                    } else {
+                        puts.add(storage.getTasks().get(id));
+                    }
+                }
+            }
+
+            try {
+                if (journaled || !conflicts.isEmpty()) {
+                    writeSnapshot(storage);
+                } else {
+                    mFileHash = fileHash;
+                    mFileHashes.clear();
+                    mFileHashes.putAll(fileHashes);
+                }
+            } catch (IOException ex) {
+                Exceptions.printStackTrace(ex);
+            }
+
+            synchronized (mPendingTasks) {
+                for (var task : puts) {
+                    mKnownHashes.put(task.getId(), fileHashes.get(task.getId()));
+                }
+                for (var id : removes) {
+                    mKnownHashes.remove(id);
+                }
+            }
+            mStorage = storage;
+        }
+
+        if (puts.isEmpty() && removes.isEmpty() && conflicts.isEmpty()) {
+            return;
+        }
+
+        FxHelper.runLater(() -> {
+            synchronized (mPendingTasks) {
+                //nvm - edited here while reloading, the edit wins
+                puts.removeIf(task -> {
+                    if (mPendingTasks.containsKey(task.getId())) {
+                        conflicts.add(task.getId());
+                        return true;
+                    }
+                    return false;
+                });
+                removes.removeIf(id -> mPendingTasks.containsKey(id) && conflicts.add(id));
+            }
+
+            mLoading = true;
+            try {
+                mTaskManager.update(puts, removes);
+            } finally {
+                mLoading = false;
+            }
+
+            StatusDisplayer.getDefault().setStatusText(NbBundle.getMessage(StorageManager.class, "tasksFileReloaded", puts.size(), removes.size()));
+            if (!conflicts.isEmpty()) {
+                var names = conflicts.stream()
+                        .map(id -> mTaskManager.getById(id) != null ? mTaskManager.getById(id).getName() : id)
+                        .sorted()
+                        .toList();
+                NbMessage.warning(mTasksFile.getName(), NbBundle.getMessage(StorageManager.class, "tasksFileConflict", String.join("\n", names)));
+            }
+        });
+    }
+
+    private void requestSave() {
+        queuePendingChanges();
+        mWriter.request();
+    }
+
+    private void write() {
+        synchronized (mJournal) {
+            LinkedHashMap<String, String> changes;
+            synchronized (mPendingTasks) {
+                if (mQueuedChanges.isEmpty()) {
+                    return;
+                }
+                changes = new LinkedHashMap<>(mQueuedChanges);
+                mQueuedChanges.clear();
+            }
+
+            try {
+                mJournal.append(changes);
+                if (mJournal.length() > Math.max(JOURNAL_COMPACT_THRESHOLD, mTasksFile.length() / 2)) {
+                    compact();
+                }
+            } catch (IOException ex) {
+                Exceptions.printStackTrace(ex);
+            }
+        }
+    }
+
+    private void writeSnapshot(Storage storage) throws IOException {
+        var tmpFile = new File(mUserDirectory, "tasks.json.tmp");
+        storage.save(tmpFile, mCompactOutput);
+        if (mWatching) {
+            mFileHash = hash(Files.readAllBytes(tmpFile.toPath()));
+            mFileHashes.clear();
+            mFileHashes.putAll(hashes(storage.getTasks()));
+        }
+        Files.move(tmpFile.toPath(), mTasksFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        mJournal.delete();
+    }
+
     private static class Holder {
 
         private static final StorageManager INSTANCE = new StorageManager();
     }
 
-    public class Storage {
+    private record Reconciliation(Storage storage, List<Task> puts, List<String> removes, HashMap<String, Long> hashes) {
+
+    }
+
+    public static class Storage {
 
         private static final int FILE_FORMAT_VERSION = 1;
         @SerializedName("fileFormatVersion")
@@ -143,9 +692,16 @@ public class StorageManager {
         private final HashMap<String, Task> mTasks = new HashMap<>();
 
         public static Storage open(File file) throws IOException, JsonSyntaxException {
-            String json = FileUtils.readFileToString(file, Charset.defaultCharset());
+            return open(file, null);
+        }
 
-            var storage = GSON.fromJson(json, Storage.class);
+        public static Storage open(File file, Consumer<Task> taskConsumer) throws IOException, JsonSyntaxException {
+            Storage storage;
+            try (var reader = GSON.newJsonReader(Files.newBufferedReader(file.toPath(), Charset.defaultCharset()))) {
+                storage = new StorageAdapter(GSON.getAdapter(Task.class)).read(reader, taskConsumer);
+            } catch (IllegalStateException | NumberFormatException e) {
+                throw new JsonSyntaxException(e);
+            }
 
             if (storage.mFileFormatVersion != FILE_FORMAT_VERSION) {
                 //TODO Handle file format version change
@@ -162,17 +718,100 @@ public class StorageManager {
             return mTasks;
         }
 
-        public String save(File file) throws IOException {
+        public void save(File file) throws IOException {
+            save(file, false);
+        }
+
+        public void save(File file, boolean compact) throws IOException {
             mFileFormatVersion = FILE_FORMAT_VERSION;
-            var json = GSON.toJson(this);
-            FileUtils.writeStringToFile(file, json, Charset.defaultCharset());
+            try (var jsonWriter = GSON.newJsonWriter(Files.newBufferedWriter(file.toPath(), Charset.defaultCharset()))) {
+                if (compact) {
+                    jsonWriter.setIndent("");
+                }
+                GSON.getAdapter(Storage.class).write(jsonWriter, this);
+            }
+        }
+    }
+
+    private static class StorageAdapter extends TypeAdapter<Storage> {
+
+        private static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+                if (type.getRawType() == Storage.class) {
+                    return (TypeAdapter<T>) new StorageAdapter(gson.getAdapter(Task.class));
+                }
+
+                return null;
+            }
+        };
+
+        private final TypeAdapter<Task> mTaskAdapter;
 
-            return json;
+        public StorageAdapter(TypeAdapter<Task> taskAdapter) {
+            mTaskAdapter = taskAdapter;
         }
 
-        void setTasks(ObservableMap<String, Task> tasks) {
-            mTasks.clear();
-            mTasks.putAll(tasks);
+        @Override
+        public Storage read(JsonReader in) throws IOException {
+            return read(in, null);
+        }
+
+        /**
+         * Reads the storage and passes every task to the consumer as soon as
+         * it has been decoded.
+         */
+        private Storage read(JsonReader in, Consumer<Task> taskConsumer) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            var storage = new Storage();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "fileFormatVersion" ->
+                        storage.mFileFormatVersion = in.nextInt();
+                    case "tasks" -> {
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else {
+                            in.beginObject();
+                            while (in.hasNext()) {
+                                var id = in.nextName();
+                                var task = mTaskAdapter.read(in);
+                                if (task != null) {
+                                    storage.mTasks.put(id, task);
+                                    if (taskConsumer != null) {
+                                        taskConsumer.accept(task);
+                                    }
+                                }
+                            }
+                            in.endObject();
+                        }
+                    }
+                    default ->
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+
+            return storage;
+        }
+
+        @Override
+        public void write(JsonWriter out, Storage storage) throws IOException {
+            out.beginObject();
+            out.name("fileFormatVersion").value(storage.mFileFormatVersion);
+            out.name("tasks").beginObject();
+            for (var entry : storage.mTasks.entrySet()) {
+                out.name(entry.getKey());
+                mTaskAdapter.write(out, entry.getValue());
+            }
+            out.endObject();
+            out.endObject();
         }
     }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.openide.util.Exceptions;
+
+/**
+ * Runs a write job on a single background thread, coalescing all requests
+ * made within the window into one run.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class StorageWriter {
+
+    private final ScheduledExecutorService mExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "StorageWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean mScheduled = new AtomicBoolean(false);
+    private volatile long mWindow = 250;
+    private final Runnable mWriter;
+
+    public StorageWriter(Runnable writer) {
+        mWriter = writer;
+    }
+
+    /**
+     * Runs the write job now and waits for it to complete.
+     *
+     * @param timeout
+     * @param unit
+     * @return false if the timeout elapsed before the write completed
+     * @throws InterruptedException
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        var future = mExecutorService.submit(mWriter);
+        try {
+            future.get(timeout, unit);
+            return true;
+        } catch (ExecutionException ex) {
+            Exceptions.printStackTrace(ex);
+            return true;
+        } catch (TimeoutException ex) {
+            return false;
+        }
+    }
+
+    public long getWindow() {
+        return mWindow;
+    }
+
+    public void request() {
+        if (mScheduled.compareAndSet(false, true)) {
+            mExecutorService.schedule(() -> {
+                mScheduled.set(false);
+                try {
+                    mWriter.run();
+                } catch (RuntimeException ex) {
+                    Exceptions.printStackTrace(ex);
+                }
+            }, mWindow, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sets the time, in milliseconds, to wait for more requests before
+     * writing.
+     *
+     * @param window
+     */
+    public void setWindow(long window) {
+        mWindow = window;
+    }
+}
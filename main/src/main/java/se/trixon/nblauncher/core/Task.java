@@ -18,7 +18,8 @@ package se.trixon.nblauncher.core;
 import com.google.gson.annotations.SerializedName;
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
 import java.util.UUID;
@@ -55,10 +56,13 @@ public class Task implements EditableListItem {
     private boolean mJavaDirActivated;
     @SerializedName("last_run")
     private long mLastRun;
+    private transient volatile LaunchCommand mLaunchCommand;
     @SerializedName("locale")
     private String mLocale;
     @SerializedName("name")
     private String mName;
+    @SerializedName("startupLog")
+    private boolean mStartupLog;
     @SerializedName("userDir")
     private File mUserDir;
     @SerializedName("userDirActivated")
@@ -75,42 +79,18 @@ public class Task implements EditableListItem {
         return mCacheDir;
     }
 
-    public ArrayList<String> getCommand() {
-        var cmd = new ArrayList<String>();
-        cmd.add(mExecPath.toString());
-
-        addOptional(cmd, true, "--fontsize", mFontSize);
-        addOptional(cmd, true, "--locale", StringUtils.replace(mLocale, "-", ":"));
-        addOptional(cmd, mUserDirActivated, "--userdir", mUserDir);
-        addOptional(cmd, mCacheDirActivated, "--cachedir", mCacheDir);
-        addOptional(cmd, mJavaDirActivated, "--jdkhome", mJavaDir);
-
-        addOptionalEnvironment(cmd, true, "netbeans.logger.console=" + (mConsoleLogger ? "true" : "false"));
-
-        if (StringUtils.isNotBlank(mArg)) {
-            Arrays.stream(StringUtils.split(mArg, "\n"))
-                    .filter(line -> StringUtils.isNotBlank(line))
-                    .filter(line -> !StringUtils.startsWith(line, "#"))
-                    .forEachOrdered(line -> {
-                        cmd.addAll(Arrays.asList(StringUtils.split(line)));
-                    });
-
-        }
-
-        if (StringUtils.isNotBlank(mEnv)) {
-            Arrays.stream(StringUtils.split(mEnv, "\n"))
-                    .filter(s -> !StringUtils.startsWith(s, "#"))
-                    .filter(s -> StringUtils.contains(s, "="))
-                    .forEachOrdered(s -> {
-                        addOptionalEnvironment(cmd, true, s);
-                    });
-        }
-
-        return cmd;
+    /**
+     * Returns the launch command. It is built on first use and kept until a
+     * setting that is part of it changes.
+     *
+     * @return an unmodifiable list
+     */
+    public List<String> getCommand() {
+        return getLaunchCommand().list();
     }
 
     public String getCommandAsString() {
-        return String.join(" ", getCommand());
+        return getLaunchCommand().string();
     }
 
     public String getEnv() {
@@ -141,6 +121,10 @@ public class Task implements EditableListItem {
         return Locale.forLanguageTag(StringUtils.defaultIfBlank(mLocale, "und"));
     }
 
+    String getLocaleTag() {
+        return mLocale;
+    }
+
     @Override
     public String getName() {
         return mName;
@@ -162,36 +146,47 @@ public class Task implements EditableListItem {
         return mJavaDirActivated;
     }
 
+    public boolean isStartupLog() {
+        return mStartupLog;
+    }
+
     public boolean isUserDirActivated() {
         return mUserDirActivated;
     }
 
     public void setArg(String arg) {
         this.mArg = arg;
+        mLaunchCommand = null;
     }
 
     public void setCacheDir(File cacheDir) {
         this.mCacheDir = cacheDir;
+        mLaunchCommand = null;
     }
 
     public void setCacheDirActivated(boolean cacheDirActivated) {
         this.mCacheDirActivated = cacheDirActivated;
+        mLaunchCommand = null;
     }
 
     public void setConsoleLogger(boolean consoleLogger) {
         this.mConsoleLogger = consoleLogger;
+        mLaunchCommand = null;
     }
 
     public void setEnv(String env) {
         this.mEnv = env;
+        mLaunchCommand = null;
     }
 
     public void setExecPath(File execPath) {
         this.mExecPath = execPath;
+        mLaunchCommand = null;
     }
 
     public void setFontSize(String fontSize) {
         this.mFontSize = fontSize;
+        mLaunchCommand = null;
     }
 
     public void setId(String id) {
@@ -200,10 +195,12 @@ public class Task implements EditableListItem {
 
     public void setJavaDir(File javaDir) {
         this.mJavaDir = javaDir;
+        mLaunchCommand = null;
     }
 
     public void setJavaDirActivated(boolean javaDirActivated) {
         this.mJavaDirActivated = javaDirActivated;
+        mLaunchCommand = null;
     }
 
     public void setLastRun(long lastRun) {
@@ -216,18 +213,37 @@ public class Task implements EditableListItem {
         } else {
             mLocale = locale.toLanguageTag();
         }
+        mLaunchCommand = null;
+    }
+
+    void setLocaleTag(String locale) {
+        mLocale = locale;
+        mLaunchCommand = null;
     }
 
     public void setName(String name) {
         mName = name;
     }
 
+    /**
+     * If true, the application prints the timings of its startup phases, see
+     * {@link StartupProfile}.
+     *
+     * @param startupLog
+     */
+    public void setStartupLog(boolean startupLog) {
+        this.mStartupLog = startupLog;
+        mLaunchCommand = null;
+    }
+
     public void setUserDir(File userDir) {
         this.mUserDir = userDir;
+        mLaunchCommand = null;
     }
 
     public void setUserDirActivated(boolean userDirActivated) {
         this.mUserDirActivated = userDirActivated;
+        mLaunchCommand = null;
     }
 
     @Override
@@ -238,6 +254,48 @@ public class Task implements EditableListItem {
         return sb.toString();
     }
 
+    private LaunchCommand buildLaunchCommand() {
+        var cmd = new ArrayList<String>();
+        cmd.add(mExecPath.toString());
+
+        addOptional(cmd, true, "--fontsize", mFontSize);
+        addOptional(cmd, true, "--locale", StringUtils.replace(mLocale, "-", ":"));
+        addOptional(cmd, mUserDirActivated, "--userdir", mUserDir);
+        addOptional(cmd, mCacheDirActivated, "--cachedir", mCacheDir);
+        addOptional(cmd, mJavaDirActivated, "--jdkhome", mJavaDir);
+
+        addOptionalEnvironment(cmd, true, "netbeans.logger.console=" + (mConsoleLogger ? "true" : "false"));
+        addOptionalEnvironment(cmd, mStartupLog, "org.netbeans.log.startup=print");
+
+        if (StringUtils.isNotBlank(mArg)) {
+            for (var line : StringUtils.split(mArg, "\n")) {
+                if (StringUtils.isNotBlank(line) && !line.startsWith("#")) {
+                    Collections.addAll(cmd, StringUtils.split(line));
+                }
+            }
+        }
+
+        if (StringUtils.isNotBlank(mEnv)) {
+            for (var line : StringUtils.split(mEnv, "\n")) {
+                if (!line.startsWith("#") && line.contains("=")) {
+                    addOptionalEnvironment(cmd, true, line);
+                }
+            }
+        }
+
+        return new LaunchCommand(Collections.unmodifiableList(cmd), String.join(" ", cmd));
+    }
+
+    private LaunchCommand getLaunchCommand() {
+        var launchCommand = mLaunchCommand;
+        if (launchCommand == null) {
+            launchCommand = buildLaunchCommand();
+            mLaunchCommand = launchCommand;
+        }
+
+        return launchCommand;
+    }
+
     private void addOptional(ArrayList<String> cmd, boolean condition, String key, Object value) {
         if (value != null && condition) {
             var val = "";
@@ -264,4 +322,7 @@ public class Task implements EditableListItem {
         }
     }
 
+    private record LaunchCommand(List<String> list, String string) {
+
+    }
 }
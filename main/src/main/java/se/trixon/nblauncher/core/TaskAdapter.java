@@ -0,0 +1,165 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Streaming, reflection free, (de)serialization of {@link Task}.
+ * <p>
+ * Field names and order match the <code>@SerializedName</code> layout of the
+ * class.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class TaskAdapter extends TypeAdapter<Task> {
+
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() == Task.class) {
+                return (TypeAdapter<T>) new TaskAdapter(gson.getAdapter(File.class));
+            }
+
+            return null;
+        }
+    };
+
+    private final TypeAdapter<File> mFileAdapter;
+
+    public TaskAdapter(TypeAdapter<File> fileAdapter) {
+        mFileAdapter = fileAdapter;
+    }
+
+    @Override
+    public Task read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        var task = new Task();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "arg" ->
+                    task.setArg(readString(in));
+                case "cacheDir" ->
+                    task.setCacheDir(mFileAdapter.read(in));
+                case "cacheDirActivated" ->
+                    task.setCacheDirActivated(readBoolean(in));
+                case "consoleLogger" ->
+                    task.setConsoleLogger(readBoolean(in));
+                case "env" ->
+                    task.setEnv(readString(in));
+                case "execPath" ->
+                    task.setExecPath(mFileAdapter.read(in));
+                case "fontSize" ->
+                    task.setFontSize(readString(in));
+                case "uuid" ->
+                    task.setId(readString(in));
+                case "javaDir" ->
+                    task.setJavaDir(mFileAdapter.read(in));
+                case "javaDirActivated" ->
+                    task.setJavaDirActivated(readBoolean(in));
+                case "last_run" ->
+                    task.setLastRun(readLong(in));
+                case "locale" ->
+                    task.setLocaleTag(readString(in));
+                case "name" ->
+                    task.setName(readString(in));
+                case "startupLog" ->
+                    task.setStartupLog(readBoolean(in));
+                case "userDir" ->
+                    task.setUserDir(mFileAdapter.read(in));
+                case "userDirActivated" ->
+                    task.setUserDirActivated(readBoolean(in));
+                default ->
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return task;
+    }
+
+    @Override
+    public void write(JsonWriter out, Task task) throws IOException {
+        if (task == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name("arg").value(task.getArg());
+        out.name("cacheDir");
+        mFileAdapter.write(out, task.getCacheDir());
+        out.name("cacheDirActivated").value(task.isCacheDirActivated());
+        out.name("consoleLogger").value(task.isConsoleLogger());
+        out.name("env").value(task.getEnv());
+        out.name("execPath");
+        mFileAdapter.write(out, task.getExecPath());
+        out.name("fontSize").value(task.getFontSize());
+        out.name("uuid").value(task.getId());
+        out.name("javaDir");
+        mFileAdapter.write(out, task.getJavaDir());
+        out.name("javaDirActivated").value(task.isJavaDirActivated());
+        out.name("last_run").value(task.getLastRun());
+        out.name("locale").value(task.getLocaleTag());
+        out.name("name").value(task.getName());
+        out.name("startupLog").value(task.isStartupLog());
+        out.name("userDir");
+        mFileAdapter.write(out, task.getUserDir());
+        out.name("userDirActivated").value(task.isUserDirActivated());
+        out.endObject();
+    }
+
+    private boolean readBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return false;
+        }
+
+        return in.nextBoolean();
+    }
+
+    private long readLong(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+
+        return in.nextLong();
+    }
+
+    private String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        return in.nextString();
+    }
+}
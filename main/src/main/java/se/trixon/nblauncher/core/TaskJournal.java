@@ -0,0 +1,183 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import se.trixon.almond.util.gson_adapter.FileAdapter;
+
+/**
+ * Append-only log of task changes, one compact JSON record per line.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class TaskJournal {
+
+    private static final Gson GSON = new GsonBuilder()
+            .setVersion(1.0)
+            .serializeNulls()
+            .registerTypeAdapter(File.class, new FileAdapter())
+            .registerTypeAdapterFactory(TaskAdapter.FACTORY)
+            .create();
+    private static final String OP_PUT = "put";
+    private static final String OP_REMOVE = "remove";
+    private final File mFile;
+
+    public TaskJournal(File file) {
+        mFile = file;
+    }
+
+    /**
+     * Appends one record per change.
+     *
+     * @param changes task JSON, as created by {@link #toJson(Task)}, by id.
+     * A null value records a removal.
+     * @throws IOException
+     */
+    public synchronized void append(Map<String, String> changes) throws IOException {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        var writer = new StringWriter();
+        if (!endsWithNewLine()) {
+            writer.write('\n');
+        }
+        for (var entry : changes.entrySet()) {
+            writeEntry(writer, entry.getKey(), entry.getValue());
+        }
+
+        Files.writeString(mFile.toPath(), writer.getBuffer(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    public synchronized void delete() throws IOException {
+        Files.deleteIfExists(mFile.toPath());
+    }
+
+    public File getFile() {
+        return mFile;
+    }
+
+    public synchronized long length() {
+        return mFile.length();
+    }
+
+    /**
+     * Applies the recorded changes, in order, to the given map.
+     * <p>
+     * Unparsable lines, typically a record cut short by a crash, are skipped.
+     *
+     * @param tasks
+     * @return the number of applied records
+     * @throws IOException
+     */
+    public synchronized int replay(Map<String, Task> tasks) throws IOException {
+        if (!mFile.isFile()) {
+            return 0;
+        }
+
+        int count = 0;
+        try (var reader = Files.newBufferedReader(mFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                Entry entry;
+                try {
+                    entry = GSON.fromJson(line, Entry.class);
+                } catch (JsonParseException e) {
+                    continue;
+                }
+
+                if (entry == null || entry.mOperation == null) {
+                    continue;
+                }
+
+                switch (entry.mOperation) {
+                    case OP_PUT ->
+                        tasks.put(entry.mId, entry.mTask);
+                    case OP_REMOVE ->
+                        tasks.remove(entry.mId);
+                    default -> {
+                        continue;
+                    }
+                }
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    static Task fromJson(String json) {
+        return GSON.fromJson(json, Task.class);
+    }
+
+    static String toJson(Task task) {
+        return GSON.toJson(task);
+    }
+
+    static void writeEntry(Writer out, String id, String json) throws IOException {
+        //nvm - not closed, that would close out
+        var jsonWriter = new JsonWriter(out);
+        jsonWriter.beginObject();
+        jsonWriter.name("op").value(json == null ? OP_REMOVE : OP_PUT);
+        jsonWriter.name("id").value(id);
+        if (json != null) {
+            jsonWriter.name("task").jsonValue(json);
+        }
+        jsonWriter.endObject();
+        out.write('\n');
+    }
+
+    private boolean endsWithNewLine() throws IOException {
+        if (mFile.length() == 0) {
+            return true;
+        }
+
+        try (var raf = new RandomAccessFile(mFile, "r")) {
+            raf.seek(raf.length() - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    private static class Entry {
+
+        @SerializedName("id")
+        private String mId;
+        @SerializedName("op")
+        private String mOperation;
+        @SerializedName("task")
+        private Task mTask;
+    }
+}
@@ -16,7 +16,15 @@
 package se.trixon.nblauncher.core;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.MapChangeListener;
@@ -30,10 +38,16 @@ import org.apache.commons.lang3.StringUtils;
  */
 public class TaskManager {
 
+    private static final int BATCH_RESORT_THRESHOLD = 64;
+    private boolean mBatchUpdate;
+    private Comparator<Task> mComparator;
     private boolean mGui = true;
+    private final HashMap<String, String> mIdToNameKey = new HashMap<>();
+    private final HashMap<String, ArrayList<Task>> mNameKeyToItems = new HashMap<>();
 
     private final ObjectProperty<ObservableMap<String, Task>> mIdToItemProperty = new SimpleObjectProperty<>();
     private final ObjectProperty<ObservableList<Task>> mItemsProperty = new SimpleObjectProperty<>();
+    private final BooleanProperty mLoadingProperty = new SimpleBooleanProperty(true);
 
     public static TaskManager getInstance() {
         return Holder.INSTANCE;
@@ -43,20 +57,51 @@ public class TaskManager {
         mItemsProperty.setValue(FXCollections.observableArrayList());
         mIdToItemProperty.setValue(FXCollections.observableHashMap());
 
+        setSortOrder(SortOrder.NAME);
+
         mIdToItemProperty.get().addListener((MapChangeListener.Change<? extends String, ? extends Task> change) -> {
-            var values = new ArrayList<Task>(getIdToItem().values());
-            values.sort((o1, o2) -> o1.getName().compareToIgnoreCase(o2.getName()));
-            getItems().setAll(values);
+            if (change.wasRemoved()) {
+                unindexName(change.getValueRemoved());
+            }
+            if (change.wasAdded()) {
+                indexName(change.getValueAdded());
+            }
+
+            if (!mBatchUpdate) {
+                if (change.wasRemoved()) {
+                    removeItem(change.getValueRemoved());
+                }
+                if (change.wasAdded()) {
+                    insertItem(change.getValueAdded());
+                }
+            }
         });
     }
 
+    /**
+     * Removes all tasks with a single list change.
+     */
+    public void clear() {
+        mBatchUpdate = true;
+        try {
+            getIdToItem().clear();
+        } finally {
+            mBatchUpdate = false;
+        }
+
+        getItems().clear();
+    }
+
     public boolean exists(Task item) {
-        return getIdToItem().containsValue(item);
+        return item != null && getIdToItem().get(item.getId()) == item;
     }
 
     public boolean exists(String name) {
-        return getItems().stream()
-                .anyMatch(item -> (StringUtils.equalsIgnoreCase(name, item.getName())));
+        return name != null && mNameKeyToItems.containsKey(toNameKey(name));
+    }
+
+    public Comparator<Task> getComparator() {
+        return mComparator;
     }
 
     public Task getById(String id) {
@@ -64,15 +109,13 @@ public class TaskManager {
     }
 
     public Task getByName(String name) {
-        for (var task : getItems()) {
-            if (task.getName().equalsIgnoreCase(name)) {
-                return task;
-            }
+        if (name == null) {
+            return null;
         }
 
-        System.out.println("TASK NOT FOUND: " + name);
+        var tasks = mNameKeyToItems.get(toNameKey(name));
 
-        return null;
+        return tasks == null ? null : tasks.getFirst();
     }
 
     public final ObservableMap<String, Task> getIdToItem() {
@@ -96,13 +139,22 @@ public class TaskManager {
 //        return tasks;
 //    }
     public boolean hasActiveTasks() {
-        return false;
+        return !ExecutorManager.getInstance().getExecutors().isEmpty();
     }
 
     public boolean isGui() {
         return mGui;
     }
 
+    /**
+     * Returns true until the stored tasks have been loaded.
+     *
+     * @return
+     */
+    public boolean isLoading() {
+        return mLoadingProperty.get();
+    }
+
     public boolean isValid(String oldName, String newName) {
         if (StringUtils.isBlank(newName)) {
             return false;
@@ -117,10 +169,219 @@ public class TaskManager {
         return mItemsProperty;
     }
 
+    public BooleanProperty loadingProperty() {
+        return mLoadingProperty;
+    }
+
+    /**
+     * Updates the list entry of a task that was modified in place, moving it
+     * if its sort position has changed.
+     *
+     * @param task
+     */
+    public void refresh(Task task) {
+        if (getIdToItem().get(task.getId()) != task) {
+            return;
+        }
+
+        unindexName(task);
+        indexName(task);
+
+        var items = getItems();
+        int index = indexOf(task);
+        if (index < 0) {
+            insertItem(task);
+            return;
+        }
+
+        boolean inPlace = (index == 0 || mComparator.compare(items.get(index - 1), task) < 0)
+                && (index == items.size() - 1 || mComparator.compare(task, items.get(index + 1)) < 0);
+        if (inPlace) {
+            items.set(index, task);
+        } else {
+            items.remove(index);
+            insertItem(task);
+        }
+    }
+
+    /**
+     * Sets the comparator used to order the items.
+     * <p>
+     * Ties are broken by id, so that every task has a distinct position.
+     *
+     * @param comparator
+     */
+    public void setComparator(Comparator<Task> comparator) {
+        mComparator = comparator.thenComparing(Task::getId);
+        sortItems();
+    }
+
     public void setGui(boolean gui) {
         mGui = gui;
     }
 
+    public void setLoading(boolean loading) {
+        mLoadingProperty.set(loading);
+    }
+
+    public void setSortOrder(SortOrder sortOrder) {
+        setComparator(sortOrder.getComparator());
+    }
+
+    /**
+     * Applies all changes to the task map and updates the item list with a
+     * single list change.
+     * <p>
+     * Large batches resort the list, small ones are merged into it and a
+     * single addition or removal is applied in place.
+     *
+     * @param puts
+     * @param removes ids of the tasks to remove
+     */
+    public void update(Collection<? extends Task> puts, Collection<String> removes) {
+        int changes = puts.size() + removes.size();
+        boolean resort = changes > Math.max(BATCH_RESORT_THRESHOLD, getItems().size() / 16);
+        var added = new ArrayList<Task>(puts.size());
+        var stale = Collections.newSetFromMap(new IdentityHashMap<Task, Boolean>());
+
+        mBatchUpdate = true;
+        try {
+            var idToItem = getIdToItem();
+            for (var id : removes) {
+                var removed = idToItem.remove(id);
+                if (removed != null) {
+                    stale.add(removed);
+                }
+            }
+            for (var task : puts) {
+                var removed = idToItem.put(task.getId(), task);
+                if (removed != null) {
+                    stale.add(removed);
+                }
+                added.add(task);
+            }
+        } finally {
+            mBatchUpdate = false;
+        }
+
+        //nvm - a task replaced by a later put of the same id
+        added.removeIf(task -> getIdToItem().get(task.getId()) != task);
+        if (resort) {
+            sortItems();
+        } else if (added.size() + stale.size() > 1) {
+            mergeItems(added, stale);
+        } else {
+            stale.forEach(this::removeItem);
+            added.forEach(this::insertItem);
+        }
+    }
+
+    private void indexName(Task task) {
+        if (task.getName() != null) {
+            var key = toNameKey(task.getName());
+            mNameKeyToItems.computeIfAbsent(key, k -> new ArrayList<>(1)).add(task);
+            mIdToNameKey.put(task.getId(), key);
+        }
+    }
+
+    private int indexOf(Task task) {
+        var items = getItems();
+        int index = Collections.binarySearch(items, task, mComparator);
+        if (index >= 0 && items.get(index) == task) {
+            return index;
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) == task) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private void insertItem(Task task) {
+        var items = getItems();
+        int index = Collections.binarySearch(items, task, mComparator);
+        if (index >= 0 && items.get(index) == task) {
+            return;
+        }
+
+        items.add(index < 0 ? -index - 1 : index, task);
+    }
+
+    private void mergeItems(ArrayList<Task> added, Set<Task> stale) {
+        added.sort(mComparator);
+        var items = getItems();
+        var merged = new ArrayList<Task>(items.size() + added.size());
+        int addedIndex = 0;
+        for (var item : items) {
+            if (stale.contains(item)) {
+                continue;
+            }
+            while (addedIndex < added.size() && mComparator.compare(added.get(addedIndex), item) < 0) {
+                merged.add(added.get(addedIndex++));
+            }
+            merged.add(item);
+        }
+        merged.addAll(added.subList(addedIndex, added.size()));
+
+        items.setAll(merged);
+    }
+
+    private void removeItem(Task task) {
+        int index = indexOf(task);
+        if (index >= 0) {
+            getItems().remove(index);
+        }
+    }
+
+    private void unindexName(Task task) {
+        var key = mIdToNameKey.remove(task.getId());
+        if (key != null) {
+            var tasks = mNameKeyToItems.get(key);
+            tasks.remove(task);
+            if (tasks.isEmpty()) {
+                mNameKeyToItems.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Folds the name the same way as {@link String#equalsIgnoreCase(String)}
+     * compares it.
+     */
+    private String toNameKey(String name) {
+        var chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+
+        return new String(chars);
+    }
+
+    private void sortItems() {
+        var values = new ArrayList<Task>(getIdToItem().values());
+        values.sort(mComparator);
+        getItems().setAll(values);
+    }
+
+    public enum SortOrder {
+        NAME(Comparator.comparing(Task::getName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))),
+        LAST_RUN(Comparator.comparingLong(Task::getLastRun).reversed()),
+        EXEC_PATH(Comparator.comparing(Task::getExecPath, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        private final Comparator<Task> mComparator;
+
+        private SortOrder(Comparator<Task> comparator) {
+            mComparator = comparator;
+        }
+
+        public Comparator<Task> getComparator() {
+            return mComparator;
+        }
+    }
+
     private static class Holder {
 
         private static final TaskManager INSTANCE = new TaskManager();
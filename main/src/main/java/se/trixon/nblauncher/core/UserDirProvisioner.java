@@ -0,0 +1,361 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.SystemUtils;
+import org.openide.util.NbBundle;
+
+/**
+ * Creates user directories from templates or from other user directories.
+ * <p>
+ * Where the file system can clone files, such as Btrfs, XFS or APFS, the
+ * whole tree is cloned with <code>cp</code>, sharing all data copy-on-write.
+ * Otherwise it is copied in parallel, and files that are never modified in
+ * place, such as jars and native libraries, are hard linked when the source
+ * is on the same file store. The copy is made next to the target and moved
+ * in place once complete.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class UserDirProvisioner {
+
+    /**
+     * Paths, relative to the source, that are not provisioned.
+     */
+    public static final List<String> EXCLUDES = List.of("lock", "var/log");
+    private static final Set<String> IMMUTABLE_EXTENSIONS = Set.of("dll", "dylib", "exe", "jar", "jnilib", "so", "zip");
+    private static final String PROVISIONING_SUFFIX = ".provisioning";
+    private int mParallelism = Math.clamp(Runtime.getRuntime().availableProcessors() * 2L, 4, 16);
+    private final File mTemplatesDirectory;
+
+    public UserDirProvisioner(File templatesDirectory) {
+        mTemplatesDirectory = templatesDirectory;
+    }
+
+    public int getParallelism() {
+        return mParallelism;
+    }
+
+    /**
+     * Returns the template directories, sorted by name.
+     *
+     * @return
+     */
+    public List<File> getTemplates() {
+        var templates = mTemplatesDirectory.listFiles(file -> file.isDirectory() && !file.getName().endsWith(PROVISIONING_SUFFIX));
+        if (templates == null) {
+            return List.of();
+        }
+        Arrays.sort(templates);
+
+        return List.of(templates);
+    }
+
+    public File getTemplatesDirectory() {
+        return mTemplatesDirectory;
+    }
+
+    /**
+     * Returns true if the name can be used as the directory name of a
+     * template, without separators or parent references.
+     *
+     * @param name
+     * @return
+     */
+    public static boolean isValidTemplateName(String name) {
+        return StringUtils.isNotBlank(name)
+                && !StringUtils.containsAny(name, '/', '\\', ':', '\0')
+                && !name.equals(".")
+                && !name.contains("..");
+    }
+
+    /**
+     * Creates the target directory as a copy of the source.
+     *
+     * @param source
+     * @param target
+     * @param replace if true, an existing target is deleted first
+     * @return
+     * @throws IOException if the target exists and is not empty, and replace
+     * is false, or the copy fails
+     */
+    public Result provision(File source, File target, boolean replace) throws IOException {
+        long start = System.nanoTime();
+        var sourcePath = source.toPath().toAbsolutePath().normalize();
+        var targetPath = target.toPath().toAbsolutePath().normalize();
+        if (!Files.isDirectory(sourcePath)) {
+            throw new IOException(NbBundle.getMessage(UserDirProvisioner.class, "provisionSourceMissing", source));
+        }
+        if (targetPath.startsWith(sourcePath) || sourcePath.startsWith(targetPath)) {
+            throw new IOException(NbBundle.getMessage(UserDirProvisioner.class, "provisionOverlap", source, target));
+        }
+        if (!replace && !isEmptyDirectory(targetPath)) {
+            throw new IOException(NbBundle.getMessage(UserDirProvisioner.class, "provisionTargetExists", target));
+        }
+
+        var tempPath = targetPath.resolveSibling(targetPath.getFileName() + PROVISIONING_SUFFIX);
+        FileUtils.deleteDirectory(tempPath.toFile());
+        Files.createDirectories(tempPath.getParent());
+
+        Result result;
+        try {
+            result = cloneTree(sourcePath, tempPath);
+            if (result == null) {
+                result = copyTree(sourcePath, tempPath);
+            }
+
+            FileUtils.deleteDirectory(targetPath.toFile());
+            Files.move(tempPath, targetPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException ex) {
+            FileUtils.deleteQuietly(tempPath.toFile());
+            throw ex;
+        }
+
+        return new Result(result.method(), result.files(), result.bytes(), result.linked(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Stores a copy of the source as a template.
+     *
+     * @param source
+     * @param name
+     * @param replace
+     * @return
+     * @throws IOException if the name is not a valid template name, or the
+     * copy fails
+     */
+    public Result saveTemplate(File source, String name, boolean replace) throws IOException {
+        var target = new File(mTemplatesDirectory, name);
+        if (!isValidTemplateName(name) || !mTemplatesDirectory.equals(target.getParentFile())) {
+            throw new IOException(NbBundle.getMessage(UserDirProvisioner.class, "provisionTemplateName", name));
+        }
+
+        return provision(source, target, replace);
+    }
+
+    public void setParallelism(int parallelism) {
+        mParallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Clones the tree with the copy-on-write support of <code>cp</code>.
+     *
+     * @return the result, or null if cloning is not supported
+     */
+    private Result cloneTree(Path source, Path target) throws IOException {
+        String[] cloneCommand;
+        if (SystemUtils.IS_OS_LINUX) {
+            cloneCommand = new String[]{"cp", "-a", "--reflink=always"};
+        } else if (SystemUtils.IS_OS_MAC) {
+            cloneCommand = new String[]{"cp", "-c", "-R", "-p"};
+        } else {
+            return null;
+        }
+
+        var probe = findFile(source);
+        if (probe == null) {
+            return null;
+        }
+        Files.createDirectories(target);
+        var probeTarget = target.resolve(PROVISIONING_SUFFIX);
+        boolean supported = exec(cloneCommand, probe, probeTarget);
+        FileUtils.deleteQuietly(target.toFile());
+        if (!supported || !exec(cloneCommand, source, target)) {
+            FileUtils.deleteQuietly(target.toFile());
+            return null;
+        }
+
+        for (var exclude : EXCLUDES) {
+            FileUtils.deleteQuietly(target.resolve(exclude).toFile());
+        }
+
+        long files;
+        long bytes;
+        try (var stream = Files.walk(target)) {
+            var sizes = stream.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).summaryStatistics();
+            files = sizes.getCount();
+            bytes = sizes.getSum();
+        }
+
+        return new Result(Method.CLONE, files, bytes, 0, 0);
+    }
+
+    private Result copyTree(Path source, Path target) throws IOException {
+        var sourceStore = Files.getFileStore(source);
+        Files.createDirectories(target);
+        var copyAction = new CopyAction(source, target, source, sourceStore.equals(Files.getFileStore(target)));
+        var pool = new ForkJoinPool(mParallelism);
+        try {
+            pool.invoke(copyAction);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            pool.shutdown();
+        }
+
+        return new Result(Method.COPY, copyAction.mFiles.sum(), copyAction.mBytes.sum(), copyAction.mLinked.sum(), 0);
+    }
+
+    private boolean exec(String[] command, Path source, Path target) throws IOException {
+        var args = new ArrayList<>(List.of(command));
+        args.add(source.toString());
+        args.add(target.toString());
+        var process = new ProcessBuilder(args)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            return process.waitFor() == 0;
+        } catch (InterruptedException ex) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        }
+    }
+
+    private Path findFile(Path directory) throws IOException {
+        try (var stream = Files.walk(directory, 4)) {
+            return stream.filter(Files::isRegularFile).findFirst().orElse(null);
+        }
+    }
+
+    private boolean isEmptyDirectory(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return true;
+        }
+        if (!Files.isDirectory(path)) {
+            return false;
+        }
+        try (var stream = Files.newDirectoryStream(path)) {
+            return !stream.iterator().hasNext();
+        }
+    }
+
+    public enum Method {
+        CLONE,
+        COPY;
+    }
+
+    /**
+     *
+     * @param method
+     * @param files the number of files provisioned
+     * @param bytes
+     * @param linked the number of files hard linked rather than copied
+     * @param millis
+     */
+    public record Result(Method method, long files, long bytes, long linked, long millis) {
+
+    }
+
+    private class CopyAction extends RecursiveAction {
+
+        private final LongAdder mBytes;
+        private final LongAdder mFiles;
+        private final boolean mHardLink;
+        private final LongAdder mLinked;
+        private final Path mRoot;
+        private final Path mSource;
+        private final Path mTarget;
+
+        CopyAction(Path source, Path target, Path root, boolean hardLink) {
+            this(source, target, root, hardLink, new LongAdder(), new LongAdder(), new LongAdder());
+        }
+
+        private CopyAction(Path source, Path target, Path root, boolean hardLink, LongAdder files, LongAdder bytes, LongAdder linked) {
+            mSource = source;
+            mTarget = target;
+            mRoot = root;
+            mHardLink = hardLink;
+            mFiles = files;
+            mBytes = bytes;
+            mLinked = linked;
+        }
+
+        @Override
+        protected void compute() {
+            var subActions = new ArrayList<CopyAction>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(mSource)) {
+                for (var path : stream) {
+                    var relative = mRoot.relativize(path).toString().replace(File.separatorChar, '/');
+                    if (EXCLUDES.contains(relative)) {
+                        continue;
+                    }
+
+                    var target = mTarget.resolve(path.getFileName().toString());
+                    if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                        Files.createDirectory(target);
+                        subActions.add(new CopyAction(path, target, mRoot, mHardLink, mFiles, mBytes, mLinked));
+                    } else {
+                        copyFile(path, target);
+                    }
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+
+            invokeAll(subActions);
+        }
+
+        private void copyFile(Path source, Path target) throws IOException {
+            mFiles.increment();
+            if (Files.isSymbolicLink(source)) {
+                Files.copy(source, target, LinkOption.NOFOLLOW_LINKS);
+                return;
+            }
+
+            long size = Files.size(source);
+            mBytes.add(size);
+            if (mHardLink && isImmutable(source)) {
+                try {
+                    Files.createLink(target, source);
+                    mLinked.increment();
+                    return;
+                } catch (IOException | UnsupportedOperationException ex) {
+                    //nvm - copy it instead
+                }
+            }
+
+            Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+        }
+
+        private boolean isImmutable(Path path) {
+            var name = path.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+
+            return dot > 0 && IMMUTABLE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+        }
+    }
+}
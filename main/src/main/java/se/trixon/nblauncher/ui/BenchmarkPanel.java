@@ -0,0 +1,119 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.ui;
+
+import java.util.prefs.Preferences;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.Spinner;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.GridPane;
+import org.apache.commons.lang3.StringUtils;
+import org.openide.util.NbPreferences;
+import se.trixon.almond.util.fx.FxHelper;
+import se.trixon.nblauncher.core.StartupBenchmark;
+import se.trixon.nblauncher.core.Task;
+
+/**
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class BenchmarkPanel extends GridPane {
+
+    private static final String KEY_COLD_CACHE = "coldCache";
+    private static final String KEY_READY_PATTERN = "readyPattern";
+    private static final String KEY_READY_TIMEOUT = "readyTimeout";
+    private static final String KEY_RUNS = "runs";
+    private final CheckBox mColdCacheCheckBox = new CheckBox("Cold cache, new cache directory for each run");
+    private final Preferences mPreferences = NbPreferences.forModule(BenchmarkPanel.class).node("benchmark");
+    private final TextField mReadyPatternTextField = new TextField();
+    private final Spinner<Integer> mReadyTimeoutSpinner = new Spinner<>(1, 3600, 300);
+    private final Spinner<Integer> mRunsSpinner = new Spinner<>(1, 100, 5);
+    private Task mTask;
+
+    public BenchmarkPanel() {
+        createUI();
+    }
+
+    public void load(Task task) {
+        mTask = task;
+        var node = mPreferences.node(task.getId());
+        mRunsSpinner.getValueFactory().setValue(node.getInt(KEY_RUNS, 5));
+        mColdCacheCheckBox.setSelected(node.getBoolean(KEY_COLD_CACHE, false));
+        mReadyPatternTextField.setText(node.get(KEY_READY_PATTERN, ""));
+        mReadyTimeoutSpinner.getValueFactory().setValue(node.getInt(KEY_READY_TIMEOUT, 300));
+    }
+
+    /**
+     * Stores the settings, per task, and creates a benchmark.
+     *
+     * @return
+     */
+    public StartupBenchmark save() {
+        var node = mPreferences.node(mTask.getId());
+        node.putInt(KEY_RUNS, mRunsSpinner.getValue());
+        node.putBoolean(KEY_COLD_CACHE, mColdCacheCheckBox.isSelected());
+        node.put(KEY_READY_PATTERN, mReadyPatternTextField.getText());
+        node.putInt(KEY_READY_TIMEOUT, mReadyTimeoutSpinner.getValue());
+
+        var benchmark = new StartupBenchmark(mTask);
+        benchmark.setRuns(mRunsSpinner.getValue());
+        benchmark.setColdCache(mColdCacheCheckBox.isSelected());
+        benchmark.setReadyPattern(getReadyPattern());
+        benchmark.setReadyTimeout(mReadyTimeoutSpinner.getValue() * 1000L);
+
+        return benchmark;
+    }
+
+    private void createUI() {
+        var runsLabel = new Label("Runs");
+        var readyTimeoutLabel = new Label("Ready timeout (s)");
+        var readyPatternLabel = new Label("Ready when output matches");
+
+        mReadyPatternTextField.setPromptText("Process exit");
+        mRunsSpinner.setEditable(true);
+        mReadyTimeoutSpinner.setEditable(true);
+
+        int row = 0;
+        addRow(row, runsLabel, readyTimeoutLabel);
+        addRow(++row, mRunsSpinner, mReadyTimeoutSpinner);
+        add(readyPatternLabel, 0, ++row, 2, 1);
+        add(mReadyPatternTextField, 0, ++row, 2, 1);
+        add(mColdCacheCheckBox, 0, ++row, 2, 1);
+
+        var rowInsets = FxHelper.getUIScaledInsets(0, 0, 8, 0);
+        GridPane.setMargin(mRunsSpinner, rowInsets);
+        GridPane.setMargin(mReadyTimeoutSpinner, rowInsets);
+        GridPane.setMargin(mReadyPatternTextField, rowInsets);
+        setHgap(FxHelper.getUIScaled(12.0));
+        FxHelper.autoSizeColumn(this, 2);
+    }
+
+    private Pattern getReadyPattern() {
+        var text = mReadyPatternTextField.getText();
+        if (StringUtils.isBlank(text)) {
+            return null;
+        }
+
+        try {
+            return Pattern.compile(text);
+        } catch (PatternSyntaxException ex) {
+            return Pattern.compile(Pattern.quote(text));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.ui;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.prefs.Preferences;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javafx.collections.ListChangeListener;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.Spinner;
+import javafx.scene.control.TextField;
+import javafx.scene.control.cell.CheckBoxListCell;
+import javafx.scene.layout.GridPane;
+import javafx.util.StringConverter;
+import org.apache.commons.lang3.StringUtils;
+import org.controlsfx.control.CheckListView;
+import org.openide.DialogDescriptor;
+import org.openide.util.NbPreferences;
+import se.trixon.almond.util.fx.FxHelper;
+import se.trixon.nblauncher.core.GroupLauncher;
+import se.trixon.nblauncher.core.Task;
+import se.trixon.nblauncher.core.TaskManager;
+
+/**
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class GroupLaunchPanel extends GridPane {
+
+    private static final String KEY_DELAY = "delay";
+    private static final String KEY_PARALLELISM = "parallelism";
+    private static final String KEY_READY_PATTERN = "readyPattern";
+    private static final String KEY_READY_TIMEOUT = "readyTimeout";
+    private static final String KEY_STAGGER = "stagger";
+    private static final String KEY_TASKS = "tasks";
+    private final Spinner<Integer> mDelaySpinner = new Spinner<>(0, 600, 2);
+    private final Spinner<Integer> mParallelismSpinner = new Spinner<>(1, 64, 2);
+    private final Preferences mPreferences = NbPreferences.forModule(GroupLaunchPanel.class).node("groupLaunch");
+    private final TextField mReadyPatternTextField = new TextField();
+    private final Spinner<Integer> mReadyTimeoutSpinner = new Spinner<>(1, 3600, 120);
+    private final ComboBox<GroupLauncher.Stagger> mStaggerComboBox = new ComboBox<>();
+    private final CheckListView<Task> mTaskCheckListView = new CheckListView<>();
+
+    public GroupLaunchPanel() {
+        createUI();
+    }
+
+    public void load(DialogDescriptor dialogDescriptor) {
+        mTaskCheckListView.getItems().setAll(TaskManager.getInstance().getItems());
+        var checkedIds = new HashSet<>(List.of(StringUtils.split(mPreferences.get(KEY_TASKS, ""), ",")));
+        for (var task : mTaskCheckListView.getItems()) {
+            if (checkedIds.contains(task.getId())) {
+                mTaskCheckListView.getCheckModel().check(task);
+            }
+        }
+
+        mParallelismSpinner.getValueFactory().setValue(mPreferences.getInt(KEY_PARALLELISM, 2));
+        mStaggerComboBox.setValue(GroupLauncher.Stagger.valueOf(mPreferences.get(KEY_STAGGER, GroupLauncher.Stagger.READY.name())));
+        mDelaySpinner.getValueFactory().setValue(mPreferences.getInt(KEY_DELAY, 2));
+        mReadyPatternTextField.setText(mPreferences.get(KEY_READY_PATTERN, ""));
+        mReadyTimeoutSpinner.getValueFactory().setValue(mPreferences.getInt(KEY_READY_TIMEOUT, 120));
+
+        dialogDescriptor.setValid(!mTaskCheckListView.getCheckModel().isEmpty());
+        mTaskCheckListView.getCheckModel().getCheckedItems().addListener((ListChangeListener.Change<? extends Task> c) -> {
+            dialogDescriptor.setValid(!mTaskCheckListView.getCheckModel().isEmpty());
+        });
+    }
+
+    /**
+     * Stores the settings and creates a launcher for the checked tasks, in
+     * list order.
+     *
+     * @return
+     */
+    public GroupLauncher save() {
+        var tasks = mTaskCheckListView.getItems().stream()
+                .filter(task -> mTaskCheckListView.getCheckModel().isChecked(task))
+                .toList();
+
+        mPreferences.put(KEY_TASKS, String.join(",", tasks.stream().map(Task::getId).toList()));
+        mPreferences.putInt(KEY_PARALLELISM, mParallelismSpinner.getValue());
+        mPreferences.put(KEY_STAGGER, mStaggerComboBox.getValue().name());
+        mPreferences.putInt(KEY_DELAY, mDelaySpinner.getValue());
+        mPreferences.put(KEY_READY_PATTERN, mReadyPatternTextField.getText());
+        mPreferences.putInt(KEY_READY_TIMEOUT, mReadyTimeoutSpinner.getValue());
+
+        var groupLauncher = new GroupLauncher(tasks);
+        groupLauncher.setParallelism(mParallelismSpinner.getValue());
+        groupLauncher.setStagger(mStaggerComboBox.getValue());
+        groupLauncher.setDelay(mDelaySpinner.getValue() * 1000L);
+        groupLauncher.setReadyPattern(getReadyPattern());
+        groupLauncher.setReadyTimeout(mReadyTimeoutSpinner.getValue() * 1000L);
+
+        return groupLauncher;
+    }
+
+    private void createUI() {
+        var tasksLabel = new Label("Applications");
+        var parallelismLabel = new Label("Parallel starts");
+        var staggerLabel = new Label("Stagger");
+        var delayLabel = new Label("Delay (s)");
+        var readyPatternLabel = new Label("Ready when output matches");
+        var readyTimeoutLabel = new Label("Ready timeout (s)");
+
+        mTaskCheckListView.setCellFactory(listView -> new CheckBoxListCell<>(mTaskCheckListView::getItemBooleanProperty, new StringConverter<Task>() {
+            @Override
+            public Task fromString(String string) {
+                return null;
+            }
+
+            @Override
+            public String toString(Task task) {
+                return task.getName();
+            }
+        }));
+        mStaggerComboBox.getItems().setAll(GroupLauncher.Stagger.values());
+        mDelaySpinner.disableProperty().bind(mStaggerComboBox.valueProperty().isNotEqualTo(GroupLauncher.Stagger.FIXED));
+        mReadyPatternTextField.setPromptText("Any line");
+        mParallelismSpinner.setEditable(true);
+        mDelaySpinner.setEditable(true);
+        mReadyTimeoutSpinner.setEditable(true);
+
+        int row = 0;
+        add(tasksLabel, 0, row, 3, 1);
+        add(mTaskCheckListView, 0, ++row, 3, 1);
+        addRow(++row, parallelismLabel, staggerLabel, delayLabel);
+        addRow(++row, mParallelismSpinner, mStaggerComboBox, mDelaySpinner);
+        add(readyPatternLabel, 0, ++row, 2, 1);
+        add(readyTimeoutLabel, 2, row);
+        add(mReadyPatternTextField, 0, ++row, 2, 1);
+        add(mReadyTimeoutSpinner, 2, row);
+
+        var rowInsets = FxHelper.getUIScaledInsets(0, 0, 8, 0);
+        GridPane.setMargin(mTaskCheckListView, rowInsets);
+        GridPane.setMargin(mParallelismSpinner, rowInsets);
+        GridPane.setMargin(mStaggerComboBox, rowInsets);
+        GridPane.setMargin(mDelaySpinner, rowInsets);
+        setHgap(FxHelper.getUIScaled(12.0));
+        FxHelper.autoSizeColumn(this, 3);
+        mTaskCheckListView.setPrefHeight(9999);
+        mStaggerComboBox.setMaxWidth(Double.MAX_VALUE);
+    }
+
+    private Pattern getReadyPattern() {
+        var text = mReadyPatternTextField.getText();
+        if (StringUtils.isBlank(text)) {
+            return null;
+        }
+
+        try {
+            return Pattern.compile(text);
+        } catch (PatternSyntaxException ex) {
+            return Pattern.compile(Pattern.quote(text));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.ui;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import javafx.collections.FXCollections;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.BorderPane;
+import javafx.util.StringConverter;
+import org.apache.commons.io.FileUtils;
+import org.openide.util.Exceptions;
+import se.trixon.almond.util.fx.FxHelper;
+import se.trixon.nblauncher.core.MappedLog;
+import se.trixon.nblauncher.core.StorageManager;
+import se.trixon.nblauncher.core.Task;
+
+/**
+ * Shows the run logs of a task. The selected log is indexed in the background
+ * and only the visible lines are read from the memory mapped file.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class LogViewer extends BorderPane {
+
+    private final ComboBox<File> mFileComboBox = new ComboBox<>();
+    private int mGeneration;
+    private final ListView<String> mListView = new ListView<>();
+    private MappedLog mMappedLog;
+
+    public LogViewer() {
+        createUI();
+    }
+
+    public void close() {
+        mGeneration++;
+        mListView.setItems(FXCollections.observableArrayList());
+        if (mMappedLog != null) {
+            try {
+                mMappedLog.close();
+            } catch (IOException ex) {
+                Exceptions.printStackTrace(ex);
+            }
+            mMappedLog = null;
+        }
+    }
+
+    public void load(Task task) {
+        var files = StorageManager.getInstance().getRunLogManager().list(task.getId());
+        mFileComboBox.getItems().setAll(files);
+        if (!files.isEmpty()) {
+            mFileComboBox.setValue(files.getFirst());
+        }
+    }
+
+    private void createUI() {
+        mFileComboBox.setMaxWidth(Double.MAX_VALUE);
+        mFileComboBox.setConverter(new StringConverter<File>() {
+            @Override
+            public File fromString(String string) {
+                return null;
+            }
+
+            @Override
+            public String toString(File file) {
+                return file == null ? "" : "%s (%s)".formatted(file.getName(), FileUtils.byteCountToDisplaySize(file.length()));
+            }
+        });
+        mFileComboBox.valueProperty().addListener((p, o, n) -> {
+            open(n);
+        });
+        mListView.setFixedCellSize(FxHelper.getUIScaled(20));
+        mListView.setStyle("-fx-font-family: monospace;");
+
+        setTop(mFileComboBox);
+        setCenter(mListView);
+        BorderPane.setMargin(mFileComboBox, FxHelper.getUIScaledInsets(0, 0, 8, 0));
+    }
+
+    private void open(File file) {
+        close();
+        if (file == null) {
+            return;
+        }
+
+        int generation = mGeneration;
+        Thread.ofVirtual().name("LogViewer").start(() -> {
+            MappedLog mappedLog;
+            try {
+                mappedLog = new MappedLog(file);
+            } catch (IOException ex) {
+                Exceptions.printStackTrace(ex);
+                return;
+            }
+
+            FxHelper.runLater(() -> {
+                if (generation != mGeneration) {
+                    //nvm - closed, or another log selected, meanwhile
+                    try {
+                        mappedLog.close();
+                    } catch (IOException ex) {
+                        Exceptions.printStackTrace(ex);
+                    }
+                    return;
+                }
+
+                mMappedLog = mappedLog;
+                mListView.setItems(FXCollections.observableList(new AbstractList<String>() {
+                    @Override
+                    public String get(int index) {
+                        return mappedLog.getLine(index);
+                    }
+
+                    @Override
+                    public int size() {
+                        return mappedLog.getLineCount();
+                    }
+                }));
+                mListView.scrollTo(mappedLog.getLineCount() - 1);
+            });
+        });
+    }
+}
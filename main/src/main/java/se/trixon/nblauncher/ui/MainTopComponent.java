@@ -15,7 +15,10 @@
  */
 package se.trixon.nblauncher.ui;
 
+import javafx.collections.ListChangeListener;
 import javafx.scene.Scene;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.layout.StackPane;
 import org.netbeans.api.settings.ConvertAsProperties;
 import org.openide.awt.ActionID;
 import org.openide.awt.ActionReference;
@@ -23,6 +26,10 @@ import org.openide.util.NbBundle.Messages;
 import org.openide.windows.TopComponent;
 import se.trixon.almond.nbp.fx.FxTopComponent;
 import se.trixon.almond.util.Dict;
+import se.trixon.almond.util.fx.FxHelper;
+import se.trixon.nblauncher.boot.StartupTimeline;
+import se.trixon.nblauncher.core.Task;
+import se.trixon.nblauncher.core.TaskManager;
 
 /**
  * Top component which displays something.
@@ -54,8 +61,43 @@ public final class MainTopComponent extends FxTopComponent {
 
     @Override
     protected void initFX() {
+        StartupTimeline.mark("Main window");
+        var taskManager = TaskManager.getInstance();
         var taskListEditor = new TaskListEditor();
-        setScene(new Scene(taskListEditor.getEditableList()));
+        var editableList = taskListEditor.getEditableList();
+        editableList.disableProperty().bind(taskManager.loadingProperty());
+
+        var progressIndicator = new ProgressIndicator();
+        progressIndicator.setMaxSize(FxHelper.getUIScaled(48), FxHelper.getUIScaled(48));
+        progressIndicator.setMouseTransparent(true);
+        progressIndicator.visibleProperty().bind(taskManager.loadingProperty());
+
+        var scene = new Scene(new StackPane(editableList, progressIndicator));
+        setScene(scene);
+        initStartupTimeline(scene);
+    }
+
+    private void initStartupTimeline(Scene scene) {
+        var taskManager = TaskManager.getInstance();
+        taskManager.getItems().addListener(new ListChangeListener<Task>() {
+            @Override
+            public void onChanged(ListChangeListener.Change<? extends Task> c) {
+                if (!taskManager.getItems().isEmpty()) {
+                    taskManager.getItems().removeListener(this);
+                    StartupTimeline.mark("First tasks loaded");
+                }
+            }
+        });
+
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                if (!taskManager.getItems().isEmpty() || !taskManager.isLoading()) {
+                    scene.removePostLayoutPulseListener(this);
+                    StartupTimeline.finish("First list paint");
+                }
+            }
+        });
     }
 
     void writeProperties(java.util.Properties p) {
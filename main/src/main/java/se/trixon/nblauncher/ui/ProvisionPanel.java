@@ -0,0 +1,116 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.ui;
+
+import java.io.File;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.layout.GridPane;
+import javafx.util.StringConverter;
+import org.openide.DialogDescriptor;
+import org.openide.util.NbBundle;
+import se.trixon.almond.util.fx.FxHelper;
+import se.trixon.nblauncher.core.StorageManager;
+import se.trixon.nblauncher.core.Task;
+import se.trixon.nblauncher.core.TaskManager;
+
+/**
+ * Selects the template, or the task, to provision a user directory from.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class ProvisionPanel extends GridPane {
+
+    private final CheckBox mReplaceCheckBox = new CheckBox(NbBundle.getMessage(ProvisionPanel.class, "provisionReplace"));
+    private final ComboBox<Object> mSourceComboBox = new ComboBox<>();
+
+    public ProvisionPanel() {
+        createUI();
+    }
+
+    /**
+     * Returns the selected template directory, or the user directory of the
+     * selected task.
+     *
+     * @return
+     */
+    public File getSource() {
+        return switch (mSourceComboBox.getValue()) {
+            case File file ->
+                file;
+            case Task task ->
+                task.getUserDir();
+            case null, default ->
+                null;
+        };
+    }
+
+    public boolean isReplace() {
+        return mReplaceCheckBox.isSelected();
+    }
+
+    public void load(Task task, DialogDescriptor dialogDescriptor) {
+        var items = mSourceComboBox.getItems();
+        items.setAll(StorageManager.getInstance().getUserDirProvisioner().getTemplates());
+        for (var t : TaskManager.getInstance().getItems()) {
+            if (t != task && t.isUserDirActivated() && t.getUserDir() != null && t.getUserDir().isDirectory()) {
+                items.add(t);
+            }
+        }
+
+        dialogDescriptor.setValid(false);
+        mSourceComboBox.valueProperty().addListener((p, o, n) -> {
+            dialogDescriptor.setValid(n != null);
+        });
+        if (!items.isEmpty()) {
+            mSourceComboBox.setValue(items.getFirst());
+        }
+    }
+
+    private void createUI() {
+        var sourceLabel = new Label(NbBundle.getMessage(ProvisionPanel.class, "provisionSource"));
+
+        mSourceComboBox.setMaxWidth(Double.MAX_VALUE);
+        mSourceComboBox.setConverter(new StringConverter<Object>() {
+            @Override
+            public Object fromString(String string) {
+                return null;
+            }
+
+            @Override
+            public String toString(Object object) {
+                return switch (object) {
+                    case File file ->
+                        file.getName();
+                    case Task task ->
+                        "%s (%s)".formatted(task.getName(), task.getUserDir());
+                    case null, default ->
+                        "";
+                };
+            }
+        });
+
+        int row = 0;
+        add(sourceLabel, 0, row);
+        add(mSourceComboBox, 0, ++row);
+        add(mReplaceCheckBox, 0, ++row);
+
+        var rowInsets = FxHelper.getUIScaledInsets(0, 0, 8, 0);
+        GridPane.setMargin(mSourceComboBox, rowInsets);
+        FxHelper.autoSizeColumn(this, 1);
+    }
+}
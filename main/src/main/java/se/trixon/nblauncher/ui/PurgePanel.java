@@ -0,0 +1,91 @@
+/*
+ * Copyright 2024 Patrik Karlström <patrik@trixon.se>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.trixon.nblauncher.ui;
+
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.Spinner;
+import javafx.scene.layout.GridPane;
+import org.apache.commons.io.FileUtils;
+import se.trixon.almond.util.fx.FxHelper;
+import se.trixon.nblauncher.core.DiskUsageAnalyzer;
+import se.trixon.nblauncher.core.Task;
+
+/**
+ * Edits the purge policy, which is shared by all tasks.
+ *
+ * @author Patrik Karlström <patrik@trixon.se>
+ */
+public class PurgePanel extends GridPane {
+
+    private final CheckBox mBeforeLaunchCheckBox = new CheckBox("Purge before each launch");
+    private final Spinner<Integer> mMaxAgeSpinner = new Spinner<>(0, 3650, 0);
+    private final Spinner<Integer> mMaxSizeSpinner = new Spinner<>(0, 1_000_000, 0, 256);
+    private final Label mUsageLabel = new Label();
+
+    public PurgePanel() {
+        createUI();
+    }
+
+    public void load(Task task) {
+        var usage = DiskUsageAnalyzer.getInstance().getUsage(task.getId());
+        if (usage != null) {
+            mUsageLabel.setText("Purgeable: %s in %d files".formatted(FileUtils.byteCountToDisplaySize(usage.purgeable().bytes()), usage.purgeable().files()));
+        }
+
+        var purgePolicy = DiskUsageAnalyzer.getInstance().getPurgePolicy();
+        mMaxAgeSpinner.getValueFactory().setValue(purgePolicy.maxAge());
+        mMaxSizeSpinner.getValueFactory().setValue((int) (purgePolicy.maxSize() / FileUtils.ONE_MB));
+        mBeforeLaunchCheckBox.setSelected(purgePolicy.beforeLaunch());
+    }
+
+    /**
+     * Stores and returns the policy.
+     *
+     * @return
+     */
+    public DiskUsageAnalyzer.PurgePolicy save() {
+        var purgePolicy = new DiskUsageAnalyzer.PurgePolicy(
+                mMaxAgeSpinner.getValue(),
+                mMaxSizeSpinner.getValue() * FileUtils.ONE_MB,
+                mBeforeLaunchCheckBox.isSelected()
+        );
+        DiskUsageAnalyzer.getInstance().setPurgePolicy(purgePolicy);
+
+        return purgePolicy;
+    }
+
+    private void createUI() {
+        var maxAgeLabel = new Label("Max age (days, 0 = no limit)");
+        var maxSizeLabel = new Label("Max size (MiB, 0 = no limit)");
+
+        mMaxAgeSpinner.setEditable(true);
+        mMaxSizeSpinner.setEditable(true);
+
+        int row = 0;
+        add(mUsageLabel, 0, row, 2, 1);
+        addRow(++row, maxAgeLabel, maxSizeLabel);
+        addRow(++row, mMaxAgeSpinner, mMaxSizeSpinner);
+        add(mBeforeLaunchCheckBox, 0, ++row, 2, 1);
+
+        var rowInsets = FxHelper.getUIScaledInsets(0, 0, 8, 0);
+        GridPane.setMargin(mUsageLabel, rowInsets);
+        GridPane.setMargin(mMaxAgeSpinner, rowInsets);
+        GridPane.setMargin(mMaxSizeSpinner, rowInsets);
+        setHgap(FxHelper.getUIScaled(12.0));
+        FxHelper.autoSizeColumn(this, 2);
+    }
+}
@@ -25,7 +25,6 @@ import javafx.scene.control.Label;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.GridPane;
-import javafx.scene.layout.Region;
 import javax.swing.JFileChooser;
 import org.apache.commons.lang3.StringUtils;
 import org.controlsfx.validation.ValidationSupport;
@@ -58,6 +57,7 @@ public class TaskEditor extends GridPane {
     private final LocaleComboBox mLocaleComboBox = new LocaleComboBox();
     private final CheckBox mLoggerCheckBox = new CheckBox("Log to console");
     private TextField mNameTextField;
+    private final CheckBox mStartupLogCheckBox = new CheckBox("Startup timing");
     private NotificationLineSupport mNotificationLineSupport;
     private Task mTask;
     private final TaskManager mTaskManager = TaskManager.getInstance();
@@ -84,6 +84,7 @@ public class TaskEditor extends GridPane {
         mLocaleComboBox.setValue(task.getLocale());
         mFontSizeComboBox.setValue(task.getFontSize());
         mLoggerCheckBox.setSelected(task.isConsoleLogger());
+        mStartupLogCheckBox.setSelected(task.isStartupLog());
 
         mExecPathChooserPane.setPath(task.getExecPath());
         mJavaDirChooserPane.setPath(task.getJavaDir());
@@ -106,6 +107,7 @@ public class TaskEditor extends GridPane {
         mTask.setLocale(mLocaleComboBox.getValue());
         mTask.setFontSize(mFontSizeComboBox.getValue());
         mTask.setConsoleLogger(mLoggerCheckBox.isSelected());
+        mTask.setStartupLog(mStartupLogCheckBox.isSelected());
 
         mTask.setExecPath(mExecPathChooserPane.getPath());
         mTask.setJavaDir(mJavaDirChooserPane.getPath());
@@ -120,7 +122,7 @@ public class TaskEditor extends GridPane {
         mTask.setArg(mArgTextArea.getText());
         mTask.setEnv(mEnvTextArea.getText());
 
-        StorageManager.save();
+        StorageManager.save(mTask);
 
         return mTask;
     }
@@ -147,7 +149,7 @@ public class TaskEditor extends GridPane {
         int row = 0;
         nameLabel.setPrefWidth(9999);
         mFontSizeComboBox.setPrefWidth(9999);
-        addRow(++row, nameLabel, new Region(), localeLabel, fontSizeLabel);
+        addRow(++row, nameLabel, mStartupLogCheckBox, localeLabel, fontSizeLabel);
         addRow(++row, mNameTextField, mLoggerCheckBox, mLocaleComboBox, mFontSizeComboBox);
         add(mExecPathChooserPane, col, ++row, 2, 1);
         add(mJavaDirChooserPane, 2, row, 2, 1);
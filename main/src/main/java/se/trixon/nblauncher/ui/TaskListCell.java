@@ -19,13 +19,20 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.SeparatorMenuItem;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.VBox;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.openide.util.NbBundle;
 import se.trixon.almond.util.fx.FxHelper;
 import se.trixon.almond.util.fx.control.editable_list.EditableListCell;
+import se.trixon.nblauncher.core.DiskUsageAnalyzer;
 import se.trixon.nblauncher.core.ExecutorManager;
+import se.trixon.nblauncher.core.PathValidator;
 import se.trixon.nblauncher.core.Task;
 
 /**
@@ -34,11 +41,19 @@ import se.trixon.nblauncher.core.Task;
  */
 public class TaskListCell extends EditableListCell<Task> {
 
+    private final MenuItem mBenchmarkMenuItem = new MenuItem(NbBundle.getMessage(TaskListCell.class, "benchmark"));
+    private final ContextMenu mContextMenu = new ContextMenu();
     private final TaskListEditor mEditor;
     private final Label mExecLabel = new Label();
     private final Label mLastRunLabel = new Label();
+    private final MenuItem mLogsMenuItem = new MenuItem(NbBundle.getMessage(TaskListCell.class, "logs"));
     private final Label mNameLabel = new Label();
+    private final MenuItem mPurgeMenuItem = new MenuItem(NbBundle.getMessage(TaskListCell.class, "purge"));
+    private final Label mProblemLabel = new Label();
     private final VBox mRoot = new VBox();
+    private final Label mUsageLabel = new Label();
+    private final MenuItem mUserDirProvisionMenuItem = new MenuItem(NbBundle.getMessage(TaskListCell.class, "userDirProvision"));
+    private final MenuItem mUserDirSaveTemplateMenuItem = new MenuItem(NbBundle.getMessage(TaskListCell.class, "userDirSaveTemplate"));
 
     public TaskListCell(TaskListEditor editor) {
         mEditor = editor;
@@ -68,6 +83,37 @@ public class TaskListCell extends EditableListCell<Task> {
         mLastRunLabel.setText(lastRun);
 
         mRoot.getChildren().setAll(mNameLabel, mExecLabel, mLastRunLabel);
+        var validity = PathValidator.getInstance().invalidProperty().get().get(task.getId());
+        if (validity != null) {
+            mProblemLabel.setText(NbBundle.getMessage(TaskListCell.class, validity.execPath() ? "invalidJavaDir" : "invalidExecPath"));
+            mRoot.getChildren().add(1, mProblemLabel);
+        }
+
+        var usage = DiskUsageAnalyzer.getInstance().usageProperty().get().get(task.getId());
+        if (usage != null) {
+            mUsageLabel.setText(NbBundle.getMessage(TaskListCell.class, "diskUsage",
+                    FileUtils.byteCountToDisplaySize(usage.userDir().bytes()),
+                    FileUtils.byteCountToDisplaySize(usage.cacheDir().bytes()),
+                    FileUtils.byteCountToDisplaySize(usage.purgeable().bytes())
+            ));
+            mRoot.getChildren().add(mUsageLabel);
+        }
+        mLogsMenuItem.setOnAction(actionEvent -> {
+            mEditor.showLogs(task);
+        });
+        mBenchmarkMenuItem.setOnAction(actionEvent -> {
+            mEditor.benchmark(task);
+        });
+        mUserDirProvisionMenuItem.setOnAction(actionEvent -> {
+            mEditor.provisionUserDir(task);
+        });
+        mUserDirSaveTemplateMenuItem.setOnAction(actionEvent -> {
+            mEditor.saveUserDirTemplate(task);
+        });
+        mPurgeMenuItem.setOnAction(actionEvent -> {
+            mEditor.purge(task);
+        });
+        setContextMenu(mContextMenu);
         mRoot.setOnMouseClicked(mouseEvent -> {
             if (mouseEvent.getButton() == MouseButton.PRIMARY && mouseEvent.getClickCount() == 2) {
                 if (mouseEvent.isControlDown()) {
@@ -83,6 +129,7 @@ public class TaskListCell extends EditableListCell<Task> {
     private void clearContent() {
         setText(null);
         setGraphic(null);
+        setContextMenu(null);
     }
 
     private void createUI() {
@@ -92,6 +139,17 @@ public class TaskListCell extends EditableListCell<Task> {
         mNameLabel.setStyle(fontStyle.formatted(fontSize * 1.4, "bold"));
         mExecLabel.setStyle(fontStyle.formatted(fontSize * 1.1, "normal"));
         mLastRunLabel.setStyle(fontStyle.formatted(fontSize * 1.1, "normal"));
+        mUsageLabel.setStyle(fontStyle.formatted(fontSize * 1.1, "normal"));
+        mProblemLabel.setStyle(fontStyle.formatted(fontSize * 1.1, "bold") + " -fx-text-fill: #d9534f;");
+
+        mContextMenu.getItems().setAll(
+                mLogsMenuItem,
+                mBenchmarkMenuItem,
+                new SeparatorMenuItem(),
+                mUserDirProvisionMenuItem,
+                mUserDirSaveTemplateMenuItem,
+                mPurgeMenuItem
+        );
     }
 
 }
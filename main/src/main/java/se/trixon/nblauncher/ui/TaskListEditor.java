@@ -15,16 +15,25 @@
  */
 package se.trixon.nblauncher.ui;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import javafx.application.Platform;
 import javafx.scene.Scene;
 import javax.swing.SwingUtilities;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.netbeans.api.progress.ProgressHandle;
 import org.openide.DialogDescriptor;
 import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
 import org.openide.awt.StatusDisplayer;
+import org.openide.util.NbBundle;
 import org.openide.windows.IOProvider;
+import se.trixon.almond.nbp.dialogs.NbMessage;
 import se.trixon.almond.nbp.fx.FxDialogPanel;
 import se.trixon.almond.nbp.fx.NbEditableList;
 import se.trixon.almond.nbp.output.OutputHelper;
@@ -33,11 +42,14 @@ import se.trixon.almond.util.Dict;
 import se.trixon.almond.util.fx.FxHelper;
 import se.trixon.almond.util.fx.control.editable_list.EditableList;
 import se.trixon.almond.util.swing.SwingHelper;
+import se.trixon.nblauncher.core.DiskUsageAnalyzer;
 import se.trixon.nblauncher.core.ExecutorManager;
+import se.trixon.nblauncher.core.PathValidator;
 import se.trixon.nblauncher.core.StorageManager;
 import static se.trixon.nblauncher.core.StorageManager.GSON;
 import se.trixon.nblauncher.core.Task;
 import se.trixon.nblauncher.core.TaskManager;
+import se.trixon.nblauncher.core.UserDirProvisioner;
 
 /**
  *
@@ -56,6 +68,32 @@ public class TaskListEditor {
         return mEditableList;
     }
 
+    void benchmark(Task task) {
+        var benchmarkPanel = new BenchmarkPanel();
+        benchmarkPanel.setPadding(FxHelper.getUIScaledInsets(16, 16, 0, 16));
+        var dialogPanel = new FxDialogPanel() {
+            @Override
+            protected void fxConstructor() {
+                setScene(new Scene(benchmarkPanel));
+            }
+        };
+        dialogPanel.setPreferredSize(SwingHelper.getUIScaledDim(480, 240));
+
+        SwingUtilities.invokeLater(() -> {
+            var d = new DialogDescriptor(dialogPanel, NbBundle.getMessage(TaskListEditor.class, "benchmarkTitle", task.getName()));
+            dialogPanel.setNotifyDescriptor(d);
+            dialogPanel.initFx(() -> {
+                benchmarkPanel.load(task);
+            });
+
+            if (DialogDescriptor.OK_OPTION == DialogDisplayer.getDefault().notify(d)) {
+                Platform.runLater(() -> {
+                    benchmarkPanel.save().start();
+                });
+            }
+        });
+    }
+
     void editTask(String title, Task task) {
         var editor = new TaskEditor();
         editor.setPadding(FxHelper.getUIScaledInsets(16, 16, 0, 16));
@@ -86,6 +124,126 @@ public class TaskListEditor {
         });
     }
 
+    void provisionUserDir(Task task) {
+        if (!task.isUserDirActivated() || task.getUserDir() == null) {
+            NbMessage.warning(task.getName(), NbBundle.getMessage(TaskListEditor.class, "userDirMissing"));
+            return;
+        }
+        if (ExecutorManager.getInstance().isActive(task.getId())) {
+            NbMessage.error(Dict.Dialog.TITLE_TASK_RUNNING.toString(), Dict.Dialog.MESSAGE_TASK_RUNNING.toString());
+            return;
+        }
+
+        var provisionPanel = new ProvisionPanel();
+        provisionPanel.setPadding(FxHelper.getUIScaledInsets(16, 16, 0, 16));
+        var dialogPanel = new FxDialogPanel() {
+            @Override
+            protected void fxConstructor() {
+                setScene(new Scene(provisionPanel));
+            }
+        };
+        dialogPanel.setPreferredSize(SwingHelper.getUIScaledDim(480, 160));
+
+        SwingUtilities.invokeLater(() -> {
+            var title = NbBundle.getMessage(TaskListEditor.class, "userDirProvisionTitle", task.getName());
+            var d = new DialogDescriptor(dialogPanel, title);
+            dialogPanel.setNotifyDescriptor(d);
+            dialogPanel.initFx(() -> {
+                provisionPanel.load(task, d);
+            });
+
+            if (DialogDescriptor.OK_OPTION == DialogDisplayer.getDefault().notify(d)) {
+                var source = provisionPanel.getSource();
+                var replace = provisionPanel.isReplace();
+                provision(title, () -> StorageManager.getInstance().getUserDirProvisioner().provision(source, task.getUserDir(), replace));
+            }
+        });
+    }
+
+    void purge(Task task) {
+        var purgePanel = new PurgePanel();
+        purgePanel.setPadding(FxHelper.getUIScaledInsets(16, 16, 0, 16));
+        var dialogPanel = new FxDialogPanel() {
+            @Override
+            protected void fxConstructor() {
+                setScene(new Scene(purgePanel));
+            }
+        };
+        dialogPanel.setPreferredSize(SwingHelper.getUIScaledDim(480, 180));
+
+        SwingUtilities.invokeLater(() -> {
+            var title = NbBundle.getMessage(TaskListEditor.class, "purgeTitle", task.getName());
+            var d = new DialogDescriptor(dialogPanel, title);
+            dialogPanel.setNotifyDescriptor(d);
+            dialogPanel.initFx(() -> {
+                purgePanel.load(task);
+            });
+
+            if (DialogDescriptor.OK_OPTION == DialogDisplayer.getDefault().notify(d)) {
+                Platform.runLater(() -> {
+                    var purgePolicy = purgePanel.save();
+                    Thread.ofVirtual().name("DiskUsagePurge").start(() -> {
+                        try {
+                            var purged = DiskUsageAnalyzer.getInstance().purge(task, purgePolicy);
+                            StatusDisplayer.getDefault().setStatusText(NbBundle.getMessage(TaskListEditor.class, "purged",
+                                    purged.files(),
+                                    FileUtils.byteCountToDisplaySize(purged.bytes())
+                            ));
+                        } catch (IOException | UncheckedIOException ex) {
+                            NbMessage.error(title, ex.getMessage());
+                        }
+                    });
+                });
+            }
+        });
+    }
+
+    void saveUserDirTemplate(Task task) {
+        if (!task.isUserDirActivated() || task.getUserDir() == null || !task.getUserDir().isDirectory()) {
+            NbMessage.warning(task.getName(), NbBundle.getMessage(TaskListEditor.class, "userDirMissing"));
+            return;
+        }
+
+        SwingUtilities.invokeLater(() -> {
+            var title = NbBundle.getMessage(TaskListEditor.class, "userDirSaveTemplate");
+            var d = new NotifyDescriptor.InputLine(Dict.NAME.toString(), title);
+            d.setInputText(task.getName());
+            if (DialogDescriptor.OK_OPTION == DialogDisplayer.getDefault().notify(d) && StringUtils.isNotBlank(d.getInputText())) {
+                var name = d.getInputText().trim();
+                if (!UserDirProvisioner.isValidTemplateName(name)) {
+                    NbMessage.error(title, NbBundle.getMessage(UserDirProvisioner.class, "provisionTemplateName", name));
+                    return;
+                }
+                provision(title, () -> StorageManager.getInstance().getUserDirProvisioner().saveTemplate(task.getUserDir(), name, false));
+            }
+        });
+    }
+
+    void showLogs(Task task) {
+        var logViewer = new LogViewer();
+        logViewer.setPadding(FxHelper.getUIScaledInsets(16, 16, 0, 16));
+        var dialogPanel = new FxDialogPanel() {
+            @Override
+            protected void fxConstructor() {
+                setScene(new Scene(logViewer));
+            }
+        };
+        dialogPanel.setPreferredSize(SwingHelper.getUIScaledDim(960, 600));
+
+        SwingUtilities.invokeLater(() -> {
+            var d = new DialogDescriptor(dialogPanel, task.getName(), true, new Object[]{DialogDescriptor.CLOSED_OPTION}, DialogDescriptor.CLOSED_OPTION, DialogDescriptor.DEFAULT_ALIGN, null, null);
+            dialogPanel.setNotifyDescriptor(d);
+            dialogPanel.initFx(() -> {
+                logViewer.load(task);
+            });
+
+            DialogDisplayer.getDefault().notify(d);
+            Platform.runLater(() -> {
+                logViewer.close();
+            });
+        });
+    }
+
     private void displayInfo(Task task) {
         var io = IOProvider.getDefault().getIO(Dict.INFORMATION.toString(), false);
         var outputHelper = new OutputHelper(Dict.INFORMATION.toString(), io, false);
@@ -93,7 +251,7 @@ public class TaskListEditor {
         io.select();
         outputHelper.println(OutputLineMode.INFO, task.toString());
 
-        StatusDisplayer.getDefault().setStatusText(String.join(" ", task.getCommand()));
+        StatusDisplayer.getDefault().setStatusText(task.getCommandAsString());
     }
 
     private void init() {
@@ -105,7 +263,7 @@ public class TaskListEditor {
                     editTask(title, task);
                 })
                 .setOnRemoveAll(() -> {
-                    mTaskManager.getIdToItem().clear();
+                    mTaskManager.clear();
                     StorageManager.save();
                 })
                 .setOnRemove(t -> {
@@ -135,10 +293,39 @@ public class TaskListEditor {
                 .build();
 
         mEditableList.getListView().setCellFactory(listView -> new TaskListCell(this));
+        DiskUsageAnalyzer.getInstance().usageProperty().addListener((p, o, n) -> {
+            mEditableList.getListView().refresh();
+        });
+        PathValidator.getInstance().invalidProperty().addListener((p, o, n) -> {
+            mEditableList.getListView().refresh();
+        });
     }
 
     private void postEdit(Task task) {
         mEditableList.postEdit(task);
+        DiskUsageAnalyzer.getInstance().analyze(task);
+        PathValidator.getInstance().update(task);
+    }
+
+    private void provision(String title, Callable<UserDirProvisioner.Result> callable) {
+        var progressHandle = ProgressHandle.createHandle(title);
+        progressHandle.start();
+        Thread.ofVirtual().name("UserDirProvisioner").start(() -> {
+            try {
+                var result = callable.call();
+                StatusDisplayer.getDefault().setStatusText(NbBundle.getMessage(TaskListEditor.class, "userDirProvisioned",
+                        result.files(),
+                        FileUtils.byteCountToDisplaySize(result.bytes()),
+                        result.millis(),
+                        result.method(),
+                        result.linked()
+                ));
+            } catch (Exception ex) {
+                NbMessage.error(title, ex.getMessage());
+            } finally {
+                progressHandle.finish();
+            }
+        });
     }
 
 }